@@ -0,0 +1,468 @@
+package com.richdyang.fundus.base.datastruct;
+
+import static com.richdyang.fundus.base.ArgumentAssert.isTrue;
+import static com.richdyang.fundus.base.ArgumentAssert.notNull;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A concurrent cache of values computed per class, such as reflection
+ * metadata. Lookups never lock, so the cache scales with the number of
+ * threads reading it, and it is unbounded unless a
+ * {@linkplain #setMaximumSize(int) maximum size} is set.
+ * <p>
+ * <p>
+ * The classes loaded by the class loader of this library, or one of its
+ * parents, are held strongly, as they live as long as the library anyway, and
+ * looked up without allocating. Other classes, such as those of a
+ * redeployable web application, are held by weak keys and their values by
+ * soft references. A value usually refers to its class, such as reflection
+ * metadata does, so such a class, and its class loader, can only be collected
+ * once the garbage collector clears the value, which it does when memory runs
+ * short: an application which is undeployed should
+ * {@linkplain #flush(ClassLoader) flush} the values of its class loader to
+ * release it at once.
+ * <p>
+ * <p>
+ * Values can be {@linkplain #get(Class, Loader) loaded} on a miss, by a
+ * single thread per class while the others wait for its value, and the
+ * values of the classes of a class loader can be
+ * {@linkplain #flush(ClassLoader) flushed} when it is discarded. The numbers
+ * of hits and misses are counted, without contention between threads, for
+ * monitoring.
+ *
+ * @param <V> the type of the cached values
+ * @author <a href="mailto:richd.yang@gmail.com">Richard Yang</a>
+ * @since fundus
+ */
+public final class ClassCache<V> {
+    private static final int COUNTER_STRIPES = 16;
+    /**
+     * The counters of a stripe are this many longs apart, so that threads
+     * counting in different stripes do not share a cache line.
+     */
+    private static final int COUNTER_SPACING = 8;
+
+    private final ConcurrentMap<Class<?>, V> safeEntries = new ConcurrentHashMap<Class<?>, V>();
+    private final ConcurrentMap<ClassKey, Reference<V>> otherEntries = new ConcurrentHashMap<ClassKey, Reference<V>>();
+    private final ReferenceQueue<Class<?>> clearedKeys = new ReferenceQueue<Class<?>>();
+    private final ConcurrentMap<Class<?>, LoadTask<V>> loading = new ConcurrentHashMap<Class<?>, LoadTask<V>>();
+    /**
+     * The load each thread is waiting for, to find the waits that would never
+     * end.
+     */
+    private final ConcurrentMap<Thread, LoadTask<V>> waiting = new ConcurrentHashMap<Thread, LoadTask<V>>();
+    private final AtomicLongArray counters = new AtomicLongArray(2 * COUNTER_STRIPES * COUNTER_SPACING);
+    private volatile int maximumSize;
+
+    /**
+     * Creates an unbounded cache.
+     */
+    public ClassCache() {
+        this.maximumSize = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Creates a cache holding at most {@code maximumSize} values.
+     *
+     * @throws IllegalArgumentException if {@code maximumSize} is not positive
+     */
+    public ClassCache(int maximumSize) {
+        setMaximumSize(maximumSize);
+    }
+
+    /**
+     * Returns the value cached for {@code clazz}, or {@code null} if there is
+     * none.
+     */
+    public V get(Class<?> clazz) {
+        V value = lookup(clazz);
+        count(value != null ? 0 : 1);
+        return value;
+    }
+
+    /**
+     * Returns the value cached for {@code clazz}, loading it with
+     * {@code loader} and caching it if there is none. Only one thread loads
+     * the value of a class at a time; the other threads asking for it wait
+     * for that value instead of loading it again.
+     *
+     * @throws IllegalStateException if the value of {@code clazz} is being
+     *                               loaded by this thread already, or by a
+     *                               thread waiting for a value this thread
+     *                               is loading, as a loader asking for the
+     *                               value it loads would wait forever
+     * @throws RuntimeException      the exception thrown by {@code loader}, to
+     *                               all the threads waiting for the value
+     */
+    public V get(final Class<?> clazz, final Loader<? extends V> loader) {
+        V value = get(clazz);
+        if (value != null) {
+            return value;
+        }
+        notNull(loader);
+
+        LoadTask<V> task = new LoadTask<V>(new Callable<V>() {
+            public V call() {
+                // another thread may have cached the value since the lookup
+                V value = lookup(clazz);
+                return value != null ? value : putIfAbsent(clazz, loader.load(clazz));
+            }
+        });
+        LoadTask<V> running = loading.putIfAbsent(clazz, task);
+        if (running == null) {
+            try {
+                task.run();
+            } finally {
+                loading.remove(clazz, task);
+            }
+            return await(task);
+        }
+
+        Thread current = Thread.currentThread();
+        waiting.put(current, running);
+        try {
+            if (!running.isDone() && isWaitedBy(running, current)) {
+                throw new IllegalStateException("circular load of " + clazz.getName());
+            }
+            return await(running);
+        } finally {
+            waiting.remove(current);
+        }
+    }
+
+    /**
+     * Returns {@code true} if {@code task} is run by {@code thread}, or by a
+     * thread waiting, directly or not, for a load {@code thread} runs. Of the
+     * threads of a cycle of waits, the last to register its wait finds the
+     * cycle.
+     */
+    private boolean isWaitedBy(LoadTask<V> task, Thread thread) {
+        for (int hops = waiting.size(); task != null && hops >= 0; hops--) {
+            if (task.thread == thread) {
+                return true;
+            }
+            task = waiting.get(task.thread);
+        }
+        return false;
+    }
+
+    private V lookup(Class<?> clazz) {
+        V value = safeEntries.get(clazz);
+        if (value == null && !otherEntries.isEmpty()) {
+            Reference<V> reference = otherEntries.get(new ClassKey(clazz, null));
+            value = reference == null ? null : reference.get();
+        }
+        return value;
+    }
+
+    /**
+     * Waits for {@code task} without giving up on interruption, which is
+     * restored afterwards.
+     */
+    private static <V> V await(FutureTask<V> task) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Caches {@code value} for {@code clazz}, unless a value is cached for it
+     * already.
+     *
+     * @return the value cached for {@code clazz}, which is {@code value} if
+     * there was none
+     */
+    public V putIfAbsent(Class<?> clazz, V value) {
+        notNull(clazz);
+        notNull(value);
+        expungeClearedKeys();
+
+        V cached;
+        if (isCacheSafe(clazz)) {
+            cached = safeEntries.putIfAbsent(clazz, value);
+        } else {
+            ClassKey key = new ClassKey(clazz, clearedKeys);
+            Reference<V> reference = new SoftReference<V>(value);
+            cached = null;
+            Reference<V> existing = otherEntries.putIfAbsent(key, reference);
+            while (existing != null) {
+                cached = existing.get();
+                if (cached != null) {
+                    break;
+                }
+                // the value was collected
+                if (otherEntries.replace(key, existing, reference)) {
+                    break;
+                }
+                existing = otherEntries.putIfAbsent(key, reference);
+            }
+        }
+        if (cached != null) {
+            return cached;
+        }
+        evictIfFull();
+        return value;
+    }
+
+    /**
+     * Removes the value cached for {@code clazz}.
+     *
+     * @return the value removed, or {@code null} if there was none
+     */
+    public V remove(Class<?> clazz) {
+        V value = safeEntries.remove(clazz);
+        if (value == null) {
+            Reference<V> reference = otherEntries.remove(new ClassKey(clazz, null));
+            value = reference == null ? null : reference.get();
+        }
+        return value;
+    }
+
+    /**
+     * Removes the values cached for the classes loaded by
+     * {@code classLoader} or its descendants, typically when an application
+     * is redeployed.
+     *
+     * @return the classes whose values were removed
+     */
+    public List<Class<?>> flush(ClassLoader classLoader) {
+        notNull(classLoader);
+        List<Class<?>> flushed = new ArrayList<Class<?>>();
+        for (Iterator<Class<?>> classes = safeEntries.keySet().iterator(); classes.hasNext(); ) {
+            Class<?> clazz = classes.next();
+            if (isLoadedBy(clazz, classLoader)) {
+                classes.remove();
+                flushed.add(clazz);
+            }
+        }
+        for (Iterator<ClassKey> keys = otherEntries.keySet().iterator(); keys.hasNext(); ) {
+            Class<?> clazz = keys.next().get();
+            if (clazz == null || isLoadedBy(clazz, classLoader)) {
+                keys.remove();
+                if (clazz != null) {
+                    flushed.add(clazz);
+                }
+            }
+        }
+        return flushed;
+    }
+
+    /**
+     * Removes all the cached values.
+     */
+    public void clear() {
+        safeEntries.clear();
+        otherEntries.clear();
+        expungeClearedKeys();
+    }
+
+    /**
+     * Returns the number of cached values. Values held for classes of other
+     * class loaders are counted until their entries are found to be cleared.
+     */
+    public int size() {
+        expungeClearedKeys();
+        return safeEntries.size() + otherEntries.size();
+    }
+
+    /**
+     * Returns the maximum number of cached values, {@link Integer#MAX_VALUE}
+     * if the cache is unbounded.
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Bounds the number of cached values; when the bound is exceeded,
+     * arbitrary values are evicted.
+     *
+     * @throws IllegalArgumentException if {@code maximumSize} is not positive
+     */
+    public void setMaximumSize(int maximumSize) {
+        isTrue(maximumSize > 0, "maximum size must be positive: {0}", maximumSize);
+        this.maximumSize = maximumSize;
+        evictIfFull();
+    }
+
+    /**
+     * Returns the number of lookups that found a value.
+     */
+    public long getHitCount() {
+        return sum(0);
+    }
+
+    /**
+     * Returns the number of lookups that found no value.
+     */
+    public long getMissCount() {
+        return sum(1);
+    }
+
+    @Override
+    public String toString() {
+        return "ClassCache[size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + "]";
+    }
+
+    private void count(int counter) {
+        int stripe = (int) Thread.currentThread().getId() & (COUNTER_STRIPES - 1);
+        counters.incrementAndGet((stripe * 2 + counter) * COUNTER_SPACING);
+    }
+
+    private long sum(int counter) {
+        long sum = 0;
+        for (int stripe = 0; stripe < COUNTER_STRIPES; stripe++) {
+            sum += counters.get((stripe * 2 + counter) * COUNTER_SPACING);
+        }
+        return sum;
+    }
+
+    private void evictIfFull() {
+        int maximumSize = this.maximumSize;
+        if (maximumSize == Integer.MAX_VALUE) {
+            return;
+        }
+        while (size() > maximumSize) {
+            if (!evictOne(otherEntries.keySet().iterator()) && !evictOne(safeEntries.keySet().iterator())) {
+                return;
+            }
+        }
+    }
+
+    private static boolean evictOne(Iterator<?> keys) {
+        if (keys.hasNext()) {
+            keys.next();
+            keys.remove();
+            return true;
+        }
+        return false;
+    }
+
+    private void expungeClearedKeys() {
+        Reference<?> key;
+        while ((key = clearedKeys.poll()) != null) {
+            otherEntries.remove(key);
+        }
+    }
+
+    private static boolean isLoadedBy(Class<?> clazz, ClassLoader classLoader) {
+        try {
+            for (ClassLoader loader = clazz.getClassLoader(); loader != null; loader = loader.getParent()) {
+                if (loader == classLoader) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns {@code true} if {@code clazz} was loaded by the class loader of
+     * this class, or one of its parents, so that holding it strongly cannot
+     * keep any class loader alive longer.
+     */
+    private static boolean isCacheSafe(Class<?> clazz) {
+        try {
+            ClassLoader target = clazz.getClassLoader();
+            if (target == null) {
+                return true;
+            }
+            for (ClassLoader loader = ClassCache.class.getClassLoader(); loader != null; loader = loader.getParent()) {
+                if (loader == target) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Loads the value of a class missing from a cache.
+     *
+     * @param <V> the type of the values
+     */
+    public interface Loader<V> {
+        /**
+         * Returns the value of {@code clazz}, never {@code null}.
+         */
+        V load(Class<?> clazz);
+    }
+
+    /**
+     * A load of a value, run by the thread which created it.
+     */
+    private static final class LoadTask<V> extends FutureTask<V> {
+        final Thread thread = Thread.currentThread();
+
+        LoadTask(Callable<V> callable) {
+            super(callable);
+        }
+    }
+
+    /**
+     * A weak key of a class, equal to the keys of the same class; a cleared
+     * key is only equal to itself.
+     */
+    private static final class ClassKey extends WeakReference<Class<?>> {
+        private final int hash;
+
+        ClassKey(Class<?> clazz, ReferenceQueue<Class<?>> queue) {
+            super(clazz, queue);
+            this.hash = System.identityHashCode(clazz);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ClassKey)) {
+                return false;
+            }
+            Class<?> clazz = get();
+            return clazz != null && clazz == ((ClassKey) obj).get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
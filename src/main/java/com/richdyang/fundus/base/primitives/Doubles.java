@@ -19,6 +19,7 @@ import java.util.RandomAccess;
 
 import com.richdyang.fundus.base.ArgumentAssert;
 import com.richdyang.fundus.base.Objects.HashCodeHelper;
+import com.richdyang.fundus.base.text.Joiner;
 
 
 /**
@@ -252,18 +253,7 @@ public final class Doubles {
      * @param array     an array of {@code double} values, possibly empty
      */
     public static String join(String separator, double... array) {
-        notNull(separator);
-        if (array.length == 0) {
-            return "";
-        }
-
-        // For pre-sizing a builder, just get the right order of magnitude
-        StringBuilder builder = new StringBuilder(array.length * 12);
-        builder.append(array[0]);
-        for (int i = 1; i < array.length; i++) {
-            builder.append(separator).append(array[i]);
-        }
-        return builder.toString();
+        return Joiner.on(separator).join(array);
     }
 
     /**
@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.RandomAccess;
 
 import com.richdyang.fundus.base.Objects.HashCodeHelper;
+import com.richdyang.fundus.base.text.Joiner;
 
 
 /**
@@ -324,18 +325,7 @@ public final class Ints {
      * @param array     an array of {@code int} values, possibly empty
      */
     public static String join(String separator, int... array) {
-        notNull(separator);
-        if (array.length == 0) {
-            return "";
-        }
-
-        // For pre-sizing a builder, just get the right order of magnitude
-        StringBuilder builder = new StringBuilder(array.length * 5);
-        builder.append(array[0]);
-        for (int i = 1; i < array.length; i++) {
-            builder.append(separator).append(array[i]);
-        }
-        return builder.toString();
+        return Joiner.on(separator).join(array);
     }
 
     /**
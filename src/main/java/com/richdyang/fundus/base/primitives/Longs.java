@@ -21,6 +21,7 @@ import java.util.RandomAccess;
 
 import com.richdyang.fundus.base.ArgumentAssert;
 import com.richdyang.fundus.base.Objects.HashCodeHelper;
+import com.richdyang.fundus.base.text.Joiner;
 
 
 /**
@@ -297,18 +298,7 @@ public final class Longs {
      * @param array     an array of {@code long} values, possibly empty
      */
     public static String join(String separator, long... array) {
-        notNull(separator);
-        if (array.length == 0) {
-            return "";
-        }
-
-        // For pre-sizing a builder, just get the right order of magnitude
-        StringBuilder builder = new StringBuilder(array.length * 10);
-        builder.append(array[0]);
-        for (int i = 1; i < array.length; i++) {
-            builder.append(separator).append(array[i]);
-        }
-        return builder.toString();
+        return Joiner.on(separator).join(array);
     }
 
     /**
@@ -0,0 +1,67 @@
+package com.richdyang.fundus.base.text;
+
+import static java.lang.System.arraycopy;
+
+import java.util.Arrays;
+
+/**
+ * Numbers the distinct characters of a set from 1, every other character
+ * being class 0, so that transition tables can be indexed by the class of a
+ * character instead of the character itself. ASCII characters are classified
+ * by a table lookup, the others by a binary search.
+ *
+ * @author <a href="mailto:richd.yang@gmail.com">Richard Yang</a>
+ * @since fundus
+ */
+final class CharClasses {
+    private final int[] asciiClasses = new int[128];
+    private final char[] otherChars;
+    private final int otherBase;
+
+    /**
+     * Numbers the characters of {@code chars}, which may repeat.
+     */
+    CharClasses(CharSequence chars) {
+        int ascii = 0;
+        StringBuilder others = new StringBuilder();
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            if (c < 128) {
+                if (asciiClasses[c] == 0) {
+                    asciiClasses[c] = ++ascii;
+                }
+            } else {
+                others.append(c);
+            }
+        }
+        char[] sorted = others.toString().toCharArray();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        this.otherChars = new char[distinct];
+        arraycopy(sorted, 0, otherChars, 0, distinct);
+        this.otherBase = ascii + 1;
+    }
+
+    /**
+     * Returns the class of {@code c}, {@code 0} if it is not in the set.
+     */
+    int classOf(char c) {
+        if (c < 128) {
+            return asciiClasses[c];
+        }
+        int index = Arrays.binarySearch(otherChars, c);
+        return index < 0 ? 0 : otherBase + index;
+    }
+
+    /**
+     * Returns the number of classes, class 0 included.
+     */
+    int count() {
+        return otherBase + otherChars.length;
+    }
+}
@@ -2,15 +2,15 @@ package com.richdyang.fundus.base.text;
 
 import com.richdyang.fundus.base.ArgumentAssert;
 
+import static com.richdyang.fundus.base.ArgumentAssert.indexInBounds;
 import static com.richdyang.fundus.base.ArgumentAssert.isTrue;
 import static com.richdyang.fundus.base.ArgumentAssert.notNull;
 import static java.lang.Character.*;
 import static java.lang.String.valueOf;
 import static java.util.Arrays.*;
 
-import java.util.ArrayList;
+import java.nio.CharBuffer;
 import java.util.Arrays;
-import java.util.List;
 
 /**
  * Determines a true or false value for any Java {@code char} value, just as
@@ -114,9 +114,9 @@ public abstract class CharMatcher implements Matcher<Character> {
      * {@link Character#isDigit(char) Java's definition}. If you only care to
      * match ASCII digits, you can use {@code inRange('0', '9')}.
      */
-    public static final CharMatcher JAVA_DIGIT = new CharMatcher() {
+    public static final CharMatcher JAVA_DIGIT = new CharMatcher(true) {
         @Override
-        public boolean matches(Character c) {
+        public boolean matches(char c) {
             return isDigit(c);
         }
     };
@@ -127,9 +127,9 @@ public abstract class CharMatcher implements Matcher<Character> {
      * match letters of the Latin alphabet, you can use {@code inRange('a',
      * 'z').or(inRange('A', 'Z'))}.
      */
-    public static final CharMatcher JAVA_LETTER = new CharMatcher() {
+    public static final CharMatcher JAVA_LETTER = new CharMatcher(true) {
         @Override
-        public boolean matches(Character c) {
+        public boolean matches(char c) {
             return isLetter(c);
         }
     };
@@ -138,9 +138,9 @@ public abstract class CharMatcher implements Matcher<Character> {
      * Determines whether a character is a letter or digit according to
      * {@link Character#isLetterOrDigit(char) Java's definition}.
      */
-    public static final CharMatcher JAVA_LETTER_OR_DIGIT = new CharMatcher() {
+    public static final CharMatcher JAVA_LETTER_OR_DIGIT = new CharMatcher(true) {
         @Override
-        public boolean matches(Character c) {
+        public boolean matches(char c) {
             return isLetterOrDigit(c);
         }
     };
@@ -149,9 +149,9 @@ public abstract class CharMatcher implements Matcher<Character> {
      * Determines whether a character is upper case according to
      * {@link Character#isUpperCase(char) Java's definition}.
      */
-    public static final CharMatcher JAVA_UPPER_CASE = new CharMatcher() {
+    public static final CharMatcher JAVA_UPPER_CASE = new CharMatcher(true) {
         @Override
-        public boolean matches(Character c) {
+        public boolean matches(char c) {
             return isUpperCase(c);
         }
     };
@@ -160,9 +160,9 @@ public abstract class CharMatcher implements Matcher<Character> {
      * Determines whether a character is lower case according to
      * {@link Character#isLowerCase(char) Java's definition}.
      */
-    public static final CharMatcher JAVA_LOWER_CASE = new CharMatcher() {
+    public static final CharMatcher JAVA_LOWER_CASE = new CharMatcher(true) {
         @Override
-        public boolean matches(Character c) {
+        public boolean matches(char c) {
             return isLowerCase(c);
         }
     };
@@ -209,9 +209,9 @@ public abstract class CharMatcher implements Matcher<Character> {
     /**
      * Matches any character.
      */
-    public static final CharMatcher ANY = new CharMatcher() {
+    public static final CharMatcher ANY = new CharMatcher(true) {
         @Override
-        public boolean matches(Character c) {
+        public boolean matches(char c) {
             return true;
         }
 
@@ -308,9 +308,9 @@ public abstract class CharMatcher implements Matcher<Character> {
     /**
      * Matches no characters.
      */
-    public static final CharMatcher NONE = new CharMatcher() {
+    public static final CharMatcher NONE = new CharMatcher(true) {
         @Override
-        public boolean matches(Character c) {
+        public boolean matches(char c) {
             return false;
         }
 
@@ -403,18 +403,68 @@ public abstract class CharMatcher implements Matcher<Character> {
         }
     };
 
+    // Constructors
+
+    private final boolean builtIn;
+
+    /**
+     * Constructor for use by subclasses.
+     */
+    protected CharMatcher() {
+        this(false);
+    }
+
+    /**
+     * Constructor of the matchers of this class; {@code builtIn} is what
+     * {@link #isBuiltIn()} returns.
+     */
+    CharMatcher(boolean builtIn) {
+        this.builtIn = builtIn;
+    }
+
+    // Abstract methods
+
+    /**
+     * Determines a true or false value for the given character. This is the
+     * primitive counterpart of {@link #matches(Character)} and the one every
+     * implementation must provide; it is invoked for each character scanned by
+     * the text processing routines, so it should not box its argument.
+     */
+    public abstract boolean matches(char c);
+
     // Static factories
 
     /**
      * Returns a {@code char} matcher that matches only one specified character.
      */
     public static CharMatcher is(final char match) {
-        return new CharMatcher() {
+        return new CharMatcher(true) {
             @Override
-            public boolean matches(Character c) {
+            public boolean matches(char c) {
                 return c == match;
             }
 
+            @Override
+            public int indexIn(CharSequence sequence, int start) {
+                if (sequence instanceof String) {
+                    // intrinsified by the JVM
+                    return ((String) sequence).indexOf(match, start);
+                }
+                return super.indexIn(sequence, start);
+            }
+
+            @Override
+            public int indexIn(char[] chars, int start, int end) {
+                indexInBounds(start, end, chars.length);
+                // a plain comparison loop, which packing four chars at a time does not beat
+                for (int i = start; i < end; i++) {
+                    if (chars[i] == match) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+
             @Override
             public String replaceFrom(CharSequence sequence, char replacement) {
                 return sequence.toString().replace(match, replacement);
@@ -455,9 +505,9 @@ public abstract class CharMatcher implements Matcher<Character> {
      * To negate another {@code CharMatcher}, use {@link #negate()}.
      */
     public static CharMatcher isNot(final char match) {
-        return new CharMatcher() {
+        return new CharMatcher(true) {
             @Override
-            public boolean matches(Character c) {
+            public boolean matches(char c) {
                 return c != match;
             }
 
@@ -475,6 +525,11 @@ public abstract class CharMatcher implements Matcher<Character> {
             public CharMatcher negate() {
                 return is(match);
             }
+
+            @Override
+            public CharMatcher precomputed() {
+                return this;
+            }
         };
     }
 
@@ -491,12 +546,33 @@ public abstract class CharMatcher implements Matcher<Character> {
             case 2:
                 final char match1 = sequence.charAt(0);
                 final char match2 = sequence.charAt(1);
-                return new CharMatcher() {
+                return new CharMatcher(true) {
                     @Override
-                    public boolean matches(Character c) {
+                    public boolean matches(char c) {
                         return c == match1 || c == match2;
                     }
 
+                    @Override
+                    public int indexIn(char[] chars, int start, int end) {
+                        indexInBounds(start, end, chars.length);
+                        long pattern1 = SWAR_ONES * match1;
+                        long pattern2 = SWAR_ONES * match2;
+                        int i = start;
+                        for (int last = end - 4; i <= last; i += 4) {
+                            long word = pack(chars, i);
+                            if (hasLane(word, pattern1) || hasLane(word, pattern2)) {
+                                break;
+                            }
+                        }
+                        for (; i < end; i++) {
+                            char c = chars[i];
+                            if (c == match1 || c == match2) {
+                                return i;
+                            }
+                        }
+                        return -1;
+                    }
+
                     @Override
                     void setBits(LookupTable table) {
                         table.set(match1);
@@ -513,9 +589,9 @@ public abstract class CharMatcher implements Matcher<Character> {
         final char[] chars = sequence.toString().toCharArray();
         sort(chars); // not worth collapsing duplicates
 
-        return new CharMatcher() {
+        return new Compilable(true) {
             @Override
-            public boolean matches(Character c) {
+            public boolean matches(char c) {
                 return binarySearch(chars, c) >= 0;
             }
 
@@ -525,6 +601,15 @@ public abstract class CharMatcher implements Matcher<Character> {
                     table.set(c);
                 }
             }
+
+            @Override
+            public CharMatcher precomputed() {
+                // a small non-ASCII set is already in its compiled form
+                if (chars.length <= SMALL_SET_SIZE && chars[chars.length - 1] >= 128) {
+                    return this;
+                }
+                return super.precomputed();
+            }
         };
     }
 
@@ -547,9 +632,9 @@ public abstract class CharMatcher implements Matcher<Character> {
     public static CharMatcher inRange(final char startInclusive,
                                       final char endInclusive) {
         isTrue(endInclusive >= startInclusive);
-        return new CharMatcher() {
+        return new CharMatcher(true) {
             @Override
-            public boolean matches(Character c) {
+            public boolean matches(char c) {
                 return startInclusive <= c && c <= endInclusive;
             }
 
@@ -585,8 +670,8 @@ public abstract class CharMatcher implements Matcher<Character> {
         return new CharMatcher() {
 
             @Override
-            public boolean matches(Character character) {
-                return matcher.matches(notNull(character));
+            public boolean matches(char c) {
+                return matcher.matches(c);
             }
         };
     }
@@ -598,9 +683,9 @@ public abstract class CharMatcher implements Matcher<Character> {
      */
     public CharMatcher negate() {
         final CharMatcher original = this;
-        return new CharMatcher() {
+        return new Compilable(original.isBuiltIn()) {
             @Override
-            public boolean matches(Character c) {
+            public boolean matches(char c) {
                 return !original.matches(c);
             }
 
@@ -623,6 +708,14 @@ public abstract class CharMatcher implements Matcher<Character> {
             public CharMatcher negate() {
                 return original;
             }
+
+            @Override
+            void setBits(LookupTable table) {
+                LookupTable negated = new LookupTable();
+                original.setBits(negated);
+                negated.invert();
+                table.addAll(negated);
+            }
         };
     }
 
@@ -631,20 +724,25 @@ public abstract class CharMatcher implements Matcher<Character> {
      * and {@code other}.
      */
     public CharMatcher and(CharMatcher other) {
-        return new And(asList(this, notNull(other)));
+        return new And(components(this, And.class), components(notNull(other), And.class));
     }
 
-    private static class And extends CharMatcher {
-        List<CharMatcher> components;
+    private static class And extends Compilable {
+        final CharMatcher[] components;
+
+        And(CharMatcher[] left, CharMatcher[] right) {
+            this(concat(left, right));
+        }
 
-        And(List<CharMatcher> components) {
-            this.components = components; // Skip defensive copy (private)
+        private And(CharMatcher[] components) {
+            super(allBuiltIn(components));
+            this.components = components;
         }
 
         @Override
-        public boolean matches(Character c) {
-            for (CharMatcher matcher : components) {
-                if (!matcher.matches(c)) {
+        public boolean matches(char c) {
+            for (int i = 0; i < components.length; i++) {
+                if (!components[i].matches(c)) {
                     return false;
                 }
             }
@@ -653,10 +751,19 @@ public abstract class CharMatcher implements Matcher<Character> {
 
         @Override
         public CharMatcher and(CharMatcher other) {
-            List<CharMatcher> newComponents = new ArrayList<CharMatcher>(
-                    components);
-            newComponents.add(notNull(other));
-            return new And(newComponents);
+            return new And(components, components(notNull(other), And.class));
+        }
+
+        @Override
+        void setBits(LookupTable table) {
+            LookupTable result = new LookupTable();
+            components[0].setBits(result);
+            for (int i = 1; i < components.length; i++) {
+                LookupTable component = new LookupTable();
+                components[i].setBits(component);
+                result.retainAll(component);
+            }
+            table.addAll(result);
         }
     }
 
@@ -665,20 +772,25 @@ public abstract class CharMatcher implements Matcher<Character> {
      * matcher or {@code other}.
      */
     public CharMatcher or(CharMatcher other) {
-        return new Or(asList(this, notNull(other)));
+        return new Or(components(this, Or.class), components(notNull(other), Or.class));
     }
 
-    private static class Or extends CharMatcher {
-        List<CharMatcher> components;
+    private static class Or extends Compilable {
+        final CharMatcher[] components;
+
+        Or(CharMatcher[] left, CharMatcher[] right) {
+            this(concat(left, right));
+        }
 
-        Or(List<CharMatcher> components) {
-            this.components = components; // Skip defensive copy (private)
+        private Or(CharMatcher[] components) {
+            super(allBuiltIn(components));
+            this.components = components;
         }
 
         @Override
-        public boolean matches(Character c) {
-            for (CharMatcher matcher : components) {
-                if (matcher.matches(c)) {
+        public boolean matches(char c) {
+            for (int i = 0; i < components.length; i++) {
+                if (components[i].matches(c)) {
                     return true;
                 }
             }
@@ -687,10 +799,7 @@ public abstract class CharMatcher implements Matcher<Character> {
 
         @Override
         public CharMatcher or(CharMatcher other) {
-            List<CharMatcher> newComponents = new ArrayList<CharMatcher>(
-                    components);
-            newComponents.add(notNull(other));
-            return new Or(newComponents);
+            return new Or(components, components(notNull(other), Or.class));
         }
 
         @Override
@@ -701,6 +810,38 @@ public abstract class CharMatcher implements Matcher<Character> {
         }
     }
 
+    /**
+     * Flattens nested {@code And}/{@code Or} trees: returns the components of
+     * {@code matcher} if it is a composite of the given kind, or
+     * {@code matcher} itself otherwise.
+     */
+    private static CharMatcher[] components(CharMatcher matcher,
+                                            Class<? extends CharMatcher> kind) {
+        if (kind == And.class && matcher instanceof And) {
+            return ((And) matcher).components;
+        }
+        if (kind == Or.class && matcher instanceof Or) {
+            return ((Or) matcher).components;
+        }
+        return new CharMatcher[]{matcher};
+    }
+
+    private static boolean allBuiltIn(CharMatcher[] components) {
+        for (CharMatcher component : components) {
+            if (!component.isBuiltIn()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static CharMatcher[] concat(CharMatcher[] left, CharMatcher[] right) {
+        CharMatcher[] result = new CharMatcher[left.length + right.length];
+        System.arraycopy(left, 0, result, 0, left.length);
+        System.arraycopy(right, 0, result, left.length, right.length);
+        return result; // components are never mutated, so sharing is safe
+    }
+
     /**
      * Returns a {@code char} matcher functionally equivalent to this one, but
      * which may be faster to query than the original; your mileage may vary.
@@ -708,46 +849,348 @@ public abstract class CharMatcher implements Matcher<Character> {
      * precomputed matcher is queried many thousands of times.
      * <p>
      * <p>
-     * This method has no effect (returns {@code this}) when called in GWT: it's
-     * unclear whether a precomputed matcher is faster, but it certainly
-     * consumes more memory, which doesn't seem like a worthwhile tradeoff in a
-     * browser.
+     * Composite matchers (built with {@link #and}, {@link #or},
+     * {@link #negate} or {@link #anyOf}) made only of the matchers of this
+     * class precompute themselves automatically once the text processing
+     * routines have scanned more than {@value #COMPILE_THRESHOLD} characters
+     * with them, so calling this method is only needed to pay that cost up
+     * front. Matchers involving a subclass or a {@link #forPredicate}
+     * predicate, which may not be pure functions, are only precomputed by
+     * calling this method.
      */
     public CharMatcher precomputed() {
         return precomputedInternal();
     }
 
     /**
-     * This is the actual implementation of {@link #precomputed}, but we bounce
-     * calls through a method on {@link Platform} so that we can have different
-     * behavior in GWT.
+     * This is the actual implementation of {@link #precomputed}.
      * <p>
      * <p>
-     * The default precomputation is to cache the configuration of the original
-     * matcher in an eight-kilobyte bit array. In some situations this produces
-     * a matcher which is faster to query than the original.
-     * <p>
-     * <p>
-     * The default implementation creates a new bit array and passes it to
-     * {@link #setBits(LookupTable)}.
+     * The matched characters are first collected into a bit array by
+     * {@link #setBits(LookupTable)}, which flattens any nesting of
+     * {@link #and}, {@link #or} and {@link #negate}. The bit array is then
+     * compiled into the cheapest equivalent matcher: {@link #NONE},
+     * {@link #ANY}, a single character, a single excluded character, a
+     * contiguous range, a 128-bit mask if only ASCII characters match, a small
+     * sorted set, or the full eight-kilobyte bit array as a last resort.
      */
     CharMatcher precomputedInternal() {
-        final LookupTable table = new LookupTable();
+        LookupTable table = new LookupTable();
         setBits(table);
+        return compile(table);
+    }
 
-        return new CharMatcher() {
-            @Override
-            public boolean matches(Character c) {
-                return table.get(c);
-            }
+    /**
+     * Characters a composite matcher may scan before it is precomputed
+     * automatically. Precomputing visits every {@code char} value once, so it
+     * pays for itself after roughly as many scanned characters.
+     */
+    static final int COMPILE_THRESHOLD = 1 << 16;
 
-            // TODO: make methods like negate() smart
+    /**
+     * Sets with at most this many characters (and not all ASCII) are compiled
+     * to a sorted array searched by {@link #anyOf} instead of a full bit array.
+     */
+    private static final int SMALL_SET_SIZE = 8;
 
-            @Override
-            public CharMatcher precomputed() {
+    /**
+     * ASCII sets with at most this many characters are searched four
+     * characters at a time by {@link AsciiMatcher#indexIn(char[], int, int)}.
+     */
+    private static final int SWAR_SET_SIZE = 4;
+
+    private static CharMatcher compile(LookupTable table) {
+        int count = table.cardinality();
+        if (count == 0) {
+            return NONE;
+        }
+        if (count == MAX_VALUE + 1) {
+            return ANY;
+        }
+
+        char first = (char) table.first();
+        char last = (char) table.last();
+        if (count == 1) {
+            return is(first);
+        }
+        if (count == last - first + 1) {
+            return inRange(first, last);
+        }
+        if (count == MAX_VALUE) {
+            LookupTable excluded = table.copy();
+            excluded.invert();
+            return isNot((char) excluded.first());
+        }
+        if (last < 128) {
+            return new AsciiMatcher(table);
+        }
+        if (count <= SMALL_SET_SIZE) {
+            return anyOf(new String(table.toChars(count)));
+        }
+        return new BitSetMatcher(table);
+    }
+
+    /**
+     * Returns the matcher the text processing routines should use to scan
+     * {@code length} more characters. Only {@link Compilable} matchers ever
+     * return something other than {@code this}.
+     */
+    CharMatcher forScan(int length) {
+        return this;
+    }
+
+    /**
+     * Returns {@code true} if this matcher, and every matcher it is built
+     * from, is one of the matchers of this class, whose precomputed form is
+     * known to match the same characters; only those are precomputed
+     * automatically. Subclasses, and the matchers of
+     * {@link #forPredicate(Matcher)}, are not built in.
+     */
+    final boolean isBuiltIn() {
+        return builtIn;
+    }
+
+    /**
+     * Base class of the composite matchers which replace themselves by their
+     * {@linkplain #precomputed() precomputed} form once they have scanned more
+     * than {@link #COMPILE_THRESHOLD} characters. Every text processing
+     * routine first asks {@link #forScan(int)} for the matcher to use and
+     * delegates to it once the compiled matcher is available.
+     * <p>
+     * <p>
+     * The scan counter is deliberately not synchronized: a lost update only
+     * delays compilation, and compiling twice yields equivalent matchers. A
+     * matcher which is not {@linkplain #isBuiltIn() built in} is never
+     * compiled.
+     */
+    private abstract static class Compilable extends CharMatcher {
+        private volatile CharMatcher compiled;
+        private int scanned;
+
+        Compilable(boolean builtIn) {
+            super(builtIn);
+        }
+
+        @Override
+        final CharMatcher forScan(int length) {
+            CharMatcher matcher = compiled;
+            if (matcher != null) {
+                return matcher;
+            }
+            if (!isBuiltIn()) {
+                return this;// never compiled
+            }
+            if (length <= COMPILE_THRESHOLD - scanned) {
+                scanned += length;
                 return this;
             }
-        };
+            matcher = precomputed();
+            compiled = matcher;
+            return matcher;
+        }
+
+        @Override
+        public boolean matchesAllOf(CharSequence sequence) {
+            CharMatcher matcher = forScan(sequence.length());
+            return matcher == this ? super.matchesAllOf(sequence) : matcher.matchesAllOf(sequence);
+        }
+
+        @Override
+        public int indexIn(CharSequence sequence) {
+            CharMatcher matcher = forScan(sequence.length());
+            return matcher == this ? super.indexIn(sequence) : matcher.indexIn(sequence);
+        }
+
+        @Override
+        public int indexIn(CharSequence sequence, int start) {
+            CharMatcher matcher = forScan(sequence.length() - start);
+            return matcher == this ? super.indexIn(sequence, start) : matcher.indexIn(sequence, start);
+        }
+
+        @Override
+        public int lastIndexIn(CharSequence sequence) {
+            CharMatcher matcher = forScan(sequence.length());
+            return matcher == this ? super.lastIndexIn(sequence) : matcher.lastIndexIn(sequence);
+        }
+
+        @Override
+        public int countOf(CharSequence sequence) {
+            CharMatcher matcher = forScan(sequence.length());
+            return matcher == this ? super.countOf(sequence) : matcher.countOf(sequence);
+        }
+
+        @Override
+        public String removeFrom(CharSequence sequence) {
+            CharMatcher matcher = forScan(sequence.length());
+            return matcher == this ? super.removeFrom(sequence) : matcher.removeFrom(sequence);
+        }
+
+        @Override
+        public String retainFrom(CharSequence sequence) {
+            CharMatcher matcher = forScan(sequence.length());
+            return matcher == this ? super.retainFrom(sequence) : matcher.retainFrom(sequence);
+        }
+
+        @Override
+        public String replaceFrom(CharSequence sequence, char replacement) {
+            CharMatcher matcher = forScan(sequence.length());
+            return matcher == this ? super.replaceFrom(sequence, replacement) : matcher.replaceFrom(sequence, replacement);
+        }
+
+        @Override
+        public String trimFrom(CharSequence sequence) {
+            CharMatcher matcher = forScan(sequence.length());
+            return matcher == this ? super.trimFrom(sequence) : matcher.trimFrom(sequence);
+        }
+
+        @Override
+        public String trimLeadingFrom(CharSequence sequence) {
+            CharMatcher matcher = forScan(sequence.length());
+            return matcher == this ? super.trimLeadingFrom(sequence) : matcher.trimLeadingFrom(sequence);
+        }
+
+        @Override
+        public String trimTailingFrom(CharSequence sequence) {
+            CharMatcher matcher = forScan(sequence.length());
+            return matcher == this ? super.trimTailingFrom(sequence) : matcher.trimTailingFrom(sequence);
+        }
+
+        @Override
+        public String collapseFrom(CharSequence sequence, char replacement) {
+            CharMatcher matcher = forScan(sequence.length());
+            return matcher == this ? super.collapseFrom(sequence, replacement) : matcher.collapseFrom(sequence, replacement);
+        }
+
+        @Override
+        public String trimAndCollapseFrom(CharSequence sequence, char replacement) {
+            CharMatcher matcher = forScan(sequence.length());
+            return matcher == this ? super.trimAndCollapseFrom(sequence, replacement) : matcher.trimAndCollapseFrom(sequence, replacement);
+        }
+    }
+
+    /**
+     * Compiled form of a matcher which only matches ASCII characters: a 128-bit
+     * mask held in two {@code long}s. With at most {@link #SWAR_SET_SIZE}
+     * characters, each of them is also spread over the lanes of a
+     * {@code long}, so that {@link #indexIn(char[], int, int)} tests four
+     * characters at once against each of them.
+     */
+    private static final class AsciiMatcher extends CharMatcher {
+        final long low;  // bits for '\0' to '?'
+        final long high; // bits for '@' to '\u007f'
+        final boolean swar;
+        final long lanes0, lanes1, lanes2, lanes3; // if swar, the chars, repeated if fewer than four
+
+        AsciiMatcher(LookupTable table) {
+            super(true);
+            this.low = table.word(0);
+            this.high = table.word(1);
+            int count = table.cardinality();
+            this.swar = count <= SWAR_SET_SIZE;
+            char[] chars = table.toChars(swar ? count : 1);
+            this.lanes0 = SWAR_ONES * chars[0];
+            this.lanes1 = SWAR_ONES * chars[1 % chars.length];
+            this.lanes2 = SWAR_ONES * chars[2 % chars.length];
+            this.lanes3 = SWAR_ONES * chars[3 % chars.length];
+        }
+
+        @Override
+        public boolean matches(char c) {
+            if (c < 64) {
+                return (low & (1L << c)) != 0;
+            }
+            return c < 128 && (high & (1L << c)) != 0;
+        }
+
+        @Override
+        public int indexIn(char[] chars, int start, int end) {
+            indexInBounds(start, end, chars.length);
+            int i = start;
+            for (int last = end - 4; i <= last; i += 4) {
+                long word = pack(chars, i);
+                if (swar) {
+                    if (!hasAnyLane(word)) {
+                        continue;
+                    }
+                } else if (!hasLane((word & SWAR_NON_ASCII) >>> 7, 0)) {
+                    // four non-ASCII characters: shifted down, the non-ASCII
+                    // bits of an ASCII lane would be zero
+                    continue;
+                }
+                for (int j = i; j < i + 4; j++) {
+                    if (matches(chars[j])) {
+                        return j;
+                    }
+                }
+            }
+            for (; i < end; i++) {
+                if (matches(chars[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns {@code true} if any lane of {@code word} is one of the
+         * chars, testing them all without branching as {@link #hasLane} does.
+         */
+        private boolean hasAnyLane(long word) {
+            long x0 = word ^ lanes0;
+            long x1 = word ^ lanes1;
+            long x2 = word ^ lanes2;
+            long x3 = word ^ lanes3;
+            return (((x0 - SWAR_ONES) & ~x0 | (x1 - SWAR_ONES) & ~x1
+                    | (x2 - SWAR_ONES) & ~x2 | (x3 - SWAR_ONES) & ~x3) & SWAR_HIGHS) != 0;
+        }
+
+        @Override
+        void setBits(LookupTable table) {
+            for (char c = 0; c < 128; c++) {
+                if (matches(c)) {
+                    table.set(c);
+                }
+            }
+        }
+
+        @Override
+        public CharMatcher precomputed() {
+            return this;
+        }
+    }
+
+    /**
+     * Compiled form of an arbitrary matcher: one bit per {@code char} value.
+     */
+    private static final class BitSetMatcher extends CharMatcher {
+        final LookupTable table;
+
+        BitSetMatcher(LookupTable table) {
+            super(true);
+            this.table = table;
+        }
+
+        @Override
+        public boolean matches(char c) {
+            return table.get(c);
+        }
+
+        @Override
+        public CharMatcher negate() {
+            LookupTable negated = table.copy();
+            negated.invert();
+            return new BitSetMatcher(negated);
+        }
+
+        @Override
+        void setBits(LookupTable table) {
+            table.addAll(this.table);
+        }
+
+        @Override
+        public CharMatcher precomputed() {
+            return this;
+        }
     }
 
     /**
@@ -789,6 +1232,78 @@ public abstract class CharMatcher implements Matcher<Character> {
         boolean get(char index) {
             return (data[index >> 5] & (1 << index)) != 0;
         }
+
+        LookupTable copy() {
+            LookupTable copy = new LookupTable();
+            System.arraycopy(data, 0, copy.data, 0, data.length);
+            return copy;
+        }
+
+        void addAll(LookupTable other) {
+            for (int i = 0; i < data.length; i++) {
+                data[i] |= other.data[i];
+            }
+        }
+
+        void retainAll(LookupTable other) {
+            for (int i = 0; i < data.length; i++) {
+                data[i] &= other.data[i];
+            }
+        }
+
+        void invert() {
+            for (int i = 0; i < data.length; i++) {
+                data[i] = ~data[i];
+            }
+        }
+
+        int cardinality() {
+            int count = 0;
+            for (int word : data) {
+                count += Integer.bitCount(word);
+            }
+            return count;
+        }
+
+        /**
+         * Returns the lowest set bit; the table must not be empty.
+         */
+        int first() {
+            int i = 0;
+            while (data[i] == 0) {
+                i++;
+            }
+            return (i << 5) + Integer.numberOfTrailingZeros(data[i]);
+        }
+
+        /**
+         * Returns the highest set bit; the table must not be empty.
+         */
+        int last() {
+            int i = data.length - 1;
+            while (data[i] == 0) {
+                i--;
+            }
+            return (i << 5) + 31 - Integer.numberOfLeadingZeros(data[i]);
+        }
+
+        /**
+         * Returns bits {@code 64 * index} to {@code 64 * index + 63} as a long.
+         */
+        long word(int index) {
+            return ((long) data[2 * index + 1] << 32) | (data[2 * index] & 0xffffffffL);
+        }
+
+        char[] toChars(int count) {
+            char[] chars = new char[count];
+            int n = 0;
+            for (int i = first(); n < count; i++) {
+                if (get((char) i)) {
+                    chars[n++] = (char) i;
+                }
+            }
+            return chars;
+        }
     }
 
     // Text processing routines
@@ -883,6 +1398,60 @@ public abstract class CharMatcher implements Matcher<Character> {
         return -1;
     }
 
+    /**
+     * Returns the index of the first matching character in the range
+     * {@code [start, end)} of {@code chars}, or {@code -1} if no character of
+     * the range matches.
+     * <p>
+     * <p>
+     * The default implementation iterates over the range in forward order
+     * calling {@link #matches} for each character. The matchers returned by
+     * {@link #anyOf} for two characters, and by {@link #precomputed()} for
+     * ASCII-only matchers of at most four characters, test four characters at
+     * a time instead; those for larger ASCII-only sets skip four non-ASCII
+     * characters at a time.
+     *
+     * @throws IndexOutOfBoundsException if the range is not within {@code chars}
+     */
+    public int indexIn(char[] chars, int start, int end) {
+        indexInBounds(start, end, chars.length);
+        CharMatcher matcher = forScan(end - start);
+        if (matcher != this) {
+            return matcher.indexIn(chars, start, end);
+        }
+        for (int i = start; i < end; i++) {
+            if (matches(chars[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * SWAR ("SIMD within a register") helpers: four chars are packed into the
+     * 16-bit lanes of a long, so a single subtraction and mask tells whether
+     * any lane equals a given character (see "Hacker's Delight", 6-1).
+     */
+
+    private static final long SWAR_ONES = 0x0001000100010001L;
+    private static final long SWAR_HIGHS = 0x8000800080008000L;
+    private static final long SWAR_NON_ASCII = 0xff80ff80ff80ff80L;
+
+    static long pack(char[] chars, int index) {
+        return chars[index] | (long) chars[index + 1] << 16
+                | (long) chars[index + 2] << 32 | (long) chars[index + 3] << 48;
+    }
+
+    /**
+     * Returns {@code true} if any lane of {@code word} equals the corresponding
+     * lane of {@code pattern}. Borrows may misreport <i>which</i> lane matched,
+     * but never whether one did.
+     */
+    static boolean hasLane(long word, long pattern) {
+        long x = word ^ pattern;
+        return ((x - SWAR_ONES) & ~x & SWAR_HIGHS) != 0;
+    }
+
     /**
      * Returns the index of the last matching character in a character sequence,
      * or {@code -1} if no matching character is present.
@@ -968,7 +1537,14 @@ public abstract class CharMatcher implements Matcher<Character> {
      * ... returns {@code "aaa"}.
      */
     public String retainFrom(CharSequence sequence) {
-        return negate().removeFrom(sequence);
+        char[] chars = sequence.toString().toCharArray();
+        int length = 0;
+        for (char c : chars) {
+            if (matches(c)) {
+                chars[length++] = c;
+            }
+        }
+        return new String(chars, 0, length);
     }
 
     /**
@@ -1175,62 +1751,270 @@ public abstract class CharMatcher implements Matcher<Character> {
         if (first == -1) {
             return sequence.toString();
         }
+        char[] chars = sequence.toString().toCharArray();
+        int length = collapseFrom(chars, first, chars.length, replacement);
+        return new String(chars, 0, first + length);
+    }
 
-        // TODO: this implementation can probably be made faster.
+    /**
+     * Collapses groups of matching characters exactly as {@link #collapseFrom}
+     * does, except that groups of matching characters at the start or end of
+     * the sequence are removed without replacement.
+     */
+    public String trimAndCollapseFrom(CharSequence sequence, char replacement) {
+        char[] chars = sequence.toString().toCharArray();
+        return new String(chars, 0, trimAndCollapseFrom(chars, 0, chars.length, replacement));
+    }
 
-        StringBuilder builder = new StringBuilder(sequence.length()).append(
-                sequence.subSequence(0, first)).append(replacement);
-        boolean in = true;
-        for (int i = first + 1; i < sequence.length(); i++) {
-            char c = sequence.charAt(i);
-            if (matches(c)) {
+    // In-place routines
+
+    /**
+     * Removes all matching characters from the range {@code [start, end)} of
+     * {@code chars} in place, as {@link #removeFrom(CharSequence)} does. The
+     * remaining characters are moved to the front of the range, in order; the
+     * characters after them are left unspecified.
+     *
+     * @return the new length of the range
+     * @throws IndexOutOfBoundsException if the range is not within {@code chars}
+     */
+    public int removeFrom(char[] chars, int start, int end) {
+        indexInBounds(start, end, chars.length);
+        CharMatcher matcher = forScan(end - start);
+        int length = start;
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (!matcher.matches(c)) {
+                chars[length++] = c;
+            }
+        }
+        return length - start;
+    }
+
+    /**
+     * Removes all matching characters between the position and the limit of
+     * {@code buffer}, as {@link #removeFrom(char[], int, int)} does, and moves
+     * the limit of the buffer to the end of the remaining characters. Both heap
+     * and direct buffers are processed without copying.
+     *
+     * @return the new number of remaining characters of the buffer
+     * @throws java.nio.ReadOnlyBufferException if the buffer is read-only
+     */
+    public int removeFrom(CharBuffer buffer) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        int length;
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset();
+            length = removeFrom(buffer.array(), offset + position, offset + limit);
+        } else {
+            CharMatcher matcher = forScan(limit - position);
+            int end = position;
+            for (int i = position; i < limit; i++) {
+                char c = buffer.get(i);
+                if (!matcher.matches(c)) {
+                    buffer.put(end++, c);
+                }
+            }
+            length = end - position;
+        }
+        buffer.limit(position + length);
+        return length;
+    }
+
+    /**
+     * Replaces each matching character in the range {@code [start, end)} of
+     * {@code chars} with {@code replacement}, in place, as
+     * {@link #replaceFrom(CharSequence, char)} does. The length of the range
+     * never changes.
+     *
+     * @return the number of characters replaced
+     * @throws IndexOutOfBoundsException if the range is not within {@code chars}
+     */
+    public int replaceFrom(char[] chars, int start, int end, char replacement) {
+        indexInBounds(start, end, chars.length);
+        CharMatcher matcher = forScan(end - start);
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (matcher.matches(chars[i])) {
+                chars[i] = replacement;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Replaces each matching character between the position and the limit of
+     * {@code buffer} with {@code replacement}, as
+     * {@link #replaceFrom(char[], int, int, char)} does.
+     *
+     * @return the number of characters replaced
+     * @throws java.nio.ReadOnlyBufferException if the buffer is read-only
+     */
+    public int replaceFrom(CharBuffer buffer, char replacement) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset();
+            return replaceFrom(buffer.array(), offset + position, offset + limit, replacement);
+        }
+        CharMatcher matcher = forScan(limit - position);
+        int count = 0;
+        for (int i = position; i < limit; i++) {
+            if (matcher.matches(buffer.get(i))) {
+                buffer.put(i, replacement);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Replaces each group of consecutive matching characters in the range
+     * {@code [start, end)} of {@code chars} with a single {@code replacement},
+     * in place, as {@link #collapseFrom(CharSequence, char)} does. The result
+     * is moved to the front of the range; the characters after it are left
+     * unspecified.
+     *
+     * @return the new length of the range
+     * @throws IndexOutOfBoundsException if the range is not within {@code chars}
+     */
+    public int collapseFrom(char[] chars, int start, int end, char replacement) {
+        indexInBounds(start, end, chars.length);
+        CharMatcher matcher = forScan(end - start);
+        int length = start;
+        boolean in = false;
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (matcher.matches(c)) {
                 if (!in) {
-                    builder.append(replacement);
+                    chars[length++] = replacement;
                     in = true;
                 }
             } else {
-                builder.append(c);
+                chars[length++] = c;
                 in = false;
             }
         }
-        return builder.toString();
+        return length - start;
     }
 
     /**
-     * Collapses groups of matching characters exactly as {@link #collapseFrom}
-     * does, except that groups of matching characters at the start or end of
-     * the sequence are removed without replacement.
+     * Collapses groups of matching characters between the position and the
+     * limit of {@code buffer}, as {@link #collapseFrom(char[], int, int, char)}
+     * does, and moves the limit of the buffer to the end of the result.
+     *
+     * @return the new number of remaining characters of the buffer
+     * @throws java.nio.ReadOnlyBufferException if the buffer is read-only
      */
-    public String trimAndCollapseFrom(CharSequence sequence, char replacement) {
-        int first = negate().indexIn(sequence);
-        if (first == -1) {
-            return ""; // everything matches. nothing's left.
+    public int collapseFrom(CharBuffer buffer, char replacement) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        int length;
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset();
+            length = collapseFrom(buffer.array(), offset + position, offset + limit, replacement);
+        } else {
+            CharMatcher matcher = forScan(limit - position);
+            int end = position;
+            boolean in = false;
+            for (int i = position; i < limit; i++) {
+                char c = buffer.get(i);
+                if (matcher.matches(c)) {
+                    if (!in) {
+                        buffer.put(end++, replacement);
+                        in = true;
+                    }
+                } else {
+                    buffer.put(end++, c);
+                    in = false;
+                }
+            }
+            length = end - position;
         }
-        StringBuilder builder = new StringBuilder(sequence.length());
+        buffer.limit(position + length);
+        return length;
+    }
+
+    /**
+     * Collapses groups of matching characters in the range {@code [start, end)}
+     * of {@code chars} in place, exactly as
+     * {@link #collapseFrom(char[], int, int, char)} does, except that groups
+     * of matching characters at the start or end of the range are removed
+     * without replacement.
+     *
+     * @return the new length of the range
+     * @throws IndexOutOfBoundsException if the range is not within {@code chars}
+     */
+    public int trimAndCollapseFrom(char[] chars, int start, int end, char replacement) {
+        indexInBounds(start, end, chars.length);
+        CharMatcher matcher = forScan(end - start);
+        int length = start;
         boolean inMatchingGroup = false;
-        for (int i = first; i < sequence.length(); i++) {
-            char c = sequence.charAt(i);
-            if (matches(c)) {
-                inMatchingGroup = true;
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (matcher.matches(c)) {
+                inMatchingGroup = length > start;
             } else {
                 if (inMatchingGroup) {
-                    builder.append(replacement);
+                    chars[length++] = replacement;
                     inMatchingGroup = false;
                 }
-                builder.append(c);
+                chars[length++] = c;
+            }
+        }
+        return length - start;
+    }
+
+    /**
+     * Trims and collapses groups of matching characters between the position
+     * and the limit of {@code buffer}, as
+     * {@link #trimAndCollapseFrom(char[], int, int, char)} does, and moves the
+     * limit of the buffer to the end of the result.
+     *
+     * @return the new number of remaining characters of the buffer
+     * @throws java.nio.ReadOnlyBufferException if the buffer is read-only
+     */
+    public int trimAndCollapseFrom(CharBuffer buffer, char replacement) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        int length;
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset();
+            length = trimAndCollapseFrom(buffer.array(), offset + position, offset + limit, replacement);
+        } else {
+            CharMatcher matcher = forScan(limit - position);
+            int end = position;
+            boolean inMatchingGroup = false;
+            for (int i = position; i < limit; i++) {
+                char c = buffer.get(i);
+                if (matcher.matches(c)) {
+                    inMatchingGroup = end > position;
+                } else {
+                    if (inMatchingGroup) {
+                        buffer.put(end++, replacement);
+                        inMatchingGroup = false;
+                    }
+                    buffer.put(end++, c);
+                }
             }
+            length = end - position;
         }
-        return builder.toString();
+        buffer.limit(position + length);
+        return length;
     }
 
     // Matcher interface
 
     /**
-     * Returns {@code true} if this matcher matches the given character.
+     * Returns {@code true} if this matcher matches the given character. This
+     * is only an adapter for the {@link Matcher} interface; all text
+     * processing routines of this class call the primitive
+     * {@link #matches(char)} instead.
      *
      * @throws NullPointerException if {@code character} is null
      */
-    public boolean matches(Character character) {
-        return matches(character);
+    public final boolean matches(Character character) {
+        return matches(character.charValue());
     }
 }
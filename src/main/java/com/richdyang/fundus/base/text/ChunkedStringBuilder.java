@@ -0,0 +1,262 @@
+package com.richdyang.fundus.base.text;
+
+import static com.richdyang.fundus.base.ArgumentAssert.indexInBounds;
+import static com.richdyang.fundus.base.ArgumentAssert.isTrue;
+import static com.richdyang.fundus.base.ArgumentAssert.notNull;
+import static java.lang.System.arraycopy;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * A string builder for very large text, which appends into fixed-size chunks
+ * of characters instead of a single array. Unlike a {@link StringBuilder}, it
+ * never copies what it holds to grow, and never needs one huge array, which
+ * the garbage collector handles poorly; the text is copied once, when it is
+ * {@linkplain #writeTo(Writer) written out} or turned into a string.
+ * <p>
+ * <p>
+ * It is an {@link Appendable} and a {@link CharSequence}, so it can be given
+ * to the {@code appendTo} methods of {@link Escaper}, {@link TextView} or
+ * {@link Joiner.MapJoiner}. For example,
+ * <p>
+ * <pre>
+ *   ChunkedStringBuilder builder = new ChunkedStringBuilder();
+ *   for (String row : rows) {
+ *       Escaper.HTML.appendTo(builder, row).append("&lt;br&gt;");
+ *   }
+ *   builder.writeTo(writer);
+ * </pre>
+ * <p>
+ * Strings, string builders, heap character buffers and views are appended
+ * in bulk rather than a character at a time. {@link #clear()} keeps the
+ * chunks for the text appended next. A builder is not thread-safe.
+ *
+ * @author <a href="mailto:richd.yang@gmail.com">Richard Yang</a>
+ * @since fundus
+ */
+public final class ChunkedStringBuilder implements Appendable, CharSequence {
+    /**
+     * The number of characters in a chunk, unless specified otherwise.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 13;
+
+    private final int shift;
+    private final int mask;
+    private char[][] chunks = new char[8][];
+    private int allocated;
+    private int length;
+
+    /**
+     * Creates an empty builder with chunks of {@value #DEFAULT_CHUNK_SIZE}
+     * characters.
+     */
+    public ChunkedStringBuilder() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates an empty builder with chunks of {@code chunkSize} characters,
+     * rounded up to a power of two.
+     *
+     * @throws IllegalArgumentException if {@code chunkSize} is not positive or
+     *                                  too large
+     */
+    public ChunkedStringBuilder(int chunkSize) {
+        isTrue(chunkSize > 0 && chunkSize <= 1 << 30, "invalid chunk size: {0}", chunkSize);
+        int shift = 0;
+        while (1 << shift < chunkSize) {
+            shift++;
+        }
+        this.shift = shift;
+        this.mask = (1 << shift) - 1;
+    }
+
+    /* @Override */
+    public ChunkedStringBuilder append(char c) {
+        int offset = length & mask;
+        if (offset == 0) {
+            ensureChunk();
+        }
+        chunks[length >>> shift][offset] = c;
+        length++;
+        return this;
+    }
+
+    /* @Override */
+    public ChunkedStringBuilder append(CharSequence csq) {
+        if (csq == null) {
+            csq = "null";
+        }
+        return append(csq, 0, csq.length());
+    }
+
+    /* @Override */
+    public ChunkedStringBuilder append(CharSequence csq, int start, int end) {
+        if (csq == null) {
+            csq = "null";
+        }
+        indexInBounds(start, end, csq.length());
+        while (start < end) {
+            int offset = length & mask;
+            if (offset == 0) {
+                ensureChunk();
+            }
+            int count = Math.min(mask + 1 - offset, end - start);
+            StreamingAppender.getChars(csq, start, start + count, chunks[length >>> shift], offset);
+            start += count;
+            length += count;
+        }
+        return this;
+    }
+
+    /**
+     * Appends the characters of {@code chars} from {@code start} to
+     * {@code end}.
+     *
+     * @return this builder
+     */
+    public ChunkedStringBuilder append(char[] chars, int start, int end) {
+        indexInBounds(start, end, chars.length);
+        while (start < end) {
+            int offset = length & mask;
+            if (offset == 0) {
+                ensureChunk();
+            }
+            int count = Math.min(mask + 1 - offset, end - start);
+            arraycopy(chars, start, chunks[length >>> shift], offset, count);
+            start += count;
+            length += count;
+        }
+        return this;
+    }
+
+    /**
+     * Makes sure the chunk the next character goes into is allocated.
+     */
+    private void ensureChunk() {
+        int index = length >>> shift;
+        if (index < allocated) {
+            return;
+        }
+        if ((long) (index + 1) << shift > Integer.MAX_VALUE) {
+            throw new OutOfMemoryError("The text would be too long.");
+        }
+        if (index == chunks.length) {
+            char[][] grown = new char[chunks.length * 2][];
+            arraycopy(chunks, 0, grown, 0, chunks.length);
+            chunks = grown;
+        }
+        chunks[index] = new char[mask + 1];
+        allocated++;
+    }
+
+    /* @Override */
+    public int length() {
+        return length;
+    }
+
+    /* @Override */
+    public char charAt(int index) {
+        indexInBounds(index, length);
+        return chunks[index >>> shift][index & mask];
+    }
+
+    /**
+     * Returns the characters from {@code start} to {@code end} as a new
+     * string.
+     */
+    /* @Override */
+    public String subSequence(int start, int end) {
+        indexInBounds(start, end, length);
+        char[] chars = new char[end - start];
+        copy(start, end, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * Copies the characters from {@code start} to {@code end} into
+     * {@code dst}, starting at {@code dstBegin}.
+     *
+     * @throws IndexOutOfBoundsException if the range is out of the bounds of
+     *                                   this builder or of {@code dst}
+     */
+    public void getChars(int start, int end, char[] dst, int dstBegin) {
+        indexInBounds(start, end, length);
+        indexInBounds(dstBegin, dstBegin + end - start, dst.length);
+        copy(start, end, dst, dstBegin);
+    }
+
+    private void copy(int start, int end, char[] dst, int dstBegin) {
+        while (start < end) {
+            int offset = start & mask;
+            int count = Math.min(mask + 1 - offset, end - start);
+            arraycopy(chunks[start >>> shift], offset, dst, dstBegin, count);
+            start += count;
+            dstBegin += count;
+        }
+    }
+
+    /**
+     * Writes the characters of this builder to {@code writer}, a chunk at a
+     * time.
+     */
+    public void writeTo(Writer writer) throws IOException {
+        notNull(writer);
+        for (int start = 0; start < length; start += mask + 1) {
+            writer.write(chunks[start >>> shift], 0, Math.min(mask + 1, length - start));
+        }
+    }
+
+    /**
+     * Appends the characters of this builder to {@code appendable}, a chunk
+     * at a time.
+     */
+    public <A extends Appendable> A appendTo(A appendable) throws IOException {
+        notNull(appendable);
+        if (appendable instanceof Writer) {
+            writeTo((Writer) appendable);
+            return appendable;
+        }
+        if (appendable instanceof StringBuilder) {
+            ((StringBuilder) appendable).ensureCapacity(((StringBuilder) appendable).length() + length);
+        }
+        for (int start = 0; start < length; start += mask + 1) {
+            char[] chunk = chunks[start >>> shift];
+            int count = Math.min(mask + 1, length - start);
+            if (appendable instanceof StringBuilder) {
+                ((StringBuilder) appendable).append(chunk, 0, count);
+            } else {
+                appendable.append(CharBuffer.wrap(chunk, 0, count));
+            }
+        }
+        return appendable;
+    }
+
+    /**
+     * Removes all the characters of this builder, keeping its chunks for the
+     * characters appended next.
+     *
+     * @return this builder
+     */
+    public ChunkedStringBuilder clear() {
+        length = 0;
+        return this;
+    }
+
+    /**
+     * Returns the characters of this builder as a string. The chunks are
+     * gathered into one array of the exact length, without any intermediate
+     * growth.
+     */
+    @Override
+    public String toString() {
+        if (length <= mask + 1) {
+            return length == 0 ? "" : new String(chunks[0], 0, length);
+        }
+        char[] chars = new char[length];
+        copy(0, length, chars, 0);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,291 @@
+package com.richdyang.fundus.base.text;
+
+import static com.richdyang.fundus.base.ArgumentAssert.notNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Escapes text for embedding it in a given context, such as a JSON string or
+ * an HTML document. For example,
+ * {@code Escaper.HTML.escape("<a href=\"x\">")} returns
+ * {@code "&lt;a href=&quot;x&quot;&gt;"}.
+ * <p>
+ * <p>
+ * The escapers are table driven: the text is first scanned for a character
+ * needing to be escaped, and returned as is when there is none, which is the
+ * common case. Otherwise the text is copied once, by runs of unchanged
+ * characters, into a single buffer sized up front, or straight into an
+ * {@link Appendable}.
+ * <p>
+ * <p>
+ * Escapers are immutable and thread-safe.
+ *
+ * @author <a href="mailto:richd.yang@gmail.com">Richard Yang</a>
+ * @since fundus
+ */
+public abstract class Escaper {
+    private static final char[] LINE_SEPARATORS = {'\u2028', '\u2029'};
+    private static final String[] ESCAPED_LINE_SEPARATORS = {"\\u2028", "\\u2029"};
+
+    /**
+     * Escapes text for a JSON string: quotation marks, reverse solidi,
+     * solidi and control characters, as well as the line and paragraph
+     * separators, which JavaScript does not allow in its strings.
+     */
+    public static final Escaper JSON = new TableEscaper(jsonTable(), LINE_SEPARATORS, ESCAPED_LINE_SEPARATORS);
+
+    /**
+     * Escapes text for a JavaScript string, quoted either way, that may
+     * itself be embedded in HTML: as {@link #JSON}, and also apostrophes and
+     * the characters starting HTML markup.
+     */
+    public static final Escaper JAVASCRIPT = new TableEscaper(javaScriptTable(), LINE_SEPARATORS, ESCAPED_LINE_SEPARATORS);
+
+    /**
+     * Escapes text for HTML or XML content and attribute values, quoted
+     * either way.
+     */
+    public static final Escaper HTML = new TableEscaper(htmlTable(), new char[0], new String[0]);
+
+    /**
+     * Escapes text for a standard SQL string literal, by doubling its
+     * apostrophes. Prefer bound parameters whenever they can be used.
+     */
+    public static final Escaper SQL = new TableEscaper(sqlTable(), new char[0], new String[0]);
+
+    /**
+     * Escapes text for a component of a URL, such as a path segment or a
+     * query parameter: all characters but the unreserved ones of RFC 3986,
+     * {@code A-Z a-z 0-9 - . _ ~}, are percent-encoded in UTF-8.
+     */
+    public static final Escaper URL = new PercentEscaper("-._~");
+
+    Escaper() {
+    }
+
+    /**
+     * Returns the escaped form of {@code text}, which is {@code text} itself
+     * when it is a string with nothing to escape.
+     */
+    public String escape(CharSequence text) {
+        notNull(text);
+        int length = text.length();
+        int first = nextEscapeIndex(text, 0, length);
+        if (first == -1) {
+            return text.toString();
+        }
+        // room for a few escapes before the buffer grows
+        StringBuilder builder = new StringBuilder(length + (length >> 3) + 16);
+        try {
+            escape(text, first, builder);
+        } catch (IOException impossible) {
+            throw new AssertionError(impossible);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Appends the escaped form of {@code text} to {@code appendable}.
+     */
+    public <A extends Appendable> A appendTo(A appendable, CharSequence text) throws IOException {
+        notNull(appendable);
+        int first = nextEscapeIndex(notNull(text), 0, text.length());
+        if (first == -1) {
+            appendable.append(text);
+        } else {
+            escape(text, first, appendable);
+        }
+        return appendable;
+    }
+
+    /**
+     * Appends the escaped form of {@code text} to {@code builder}. Identical
+     * to {@link #appendTo(Appendable, CharSequence)}, except that it does not
+     * throw {@link IOException}.
+     */
+    public StringBuilder appendTo(StringBuilder builder, CharSequence text) {
+        try {
+            appendTo((Appendable) builder, text);
+        } catch (IOException impossible) {
+            throw new AssertionError(impossible);
+        }
+        return builder;
+    }
+
+    private void escape(CharSequence text, int first, Appendable out) throws IOException {
+        int length = text.length();
+        int copied = 0;
+        for (int index = first; index != -1; index = nextEscapeIndex(text, copied, length)) {
+            out.append(text, copied, index);
+            copied = escape(text, index, length, out);
+        }
+        out.append(text, copied, length);
+    }
+
+    /**
+     * Returns the index of the first character from {@code start} to
+     * {@code end} that needs to be escaped, or {@code -1} if there is none.
+     */
+    abstract int nextEscapeIndex(CharSequence text, int start, int end);
+
+    /**
+     * Appends the escaped form of the character at {@code index} to
+     * {@code out}.
+     *
+     * @return the index after the characters escaped
+     */
+    abstract int escape(CharSequence text, int index, int end, Appendable out) throws IOException;
+
+    /**
+     * Escapes the characters with a replacement in a table indexed by
+     * character, and the few characters beyond the table by a binary search.
+     */
+    private static final class TableEscaper extends Escaper {
+        private final String[] table;
+        private final char[] others;
+        private final String[] otherReplacements;
+
+        TableEscaper(String[] table, char[] others, String[] otherReplacements) {
+            this.table = table;
+            this.others = others;
+            this.otherReplacements = otherReplacements;
+        }
+
+        @Override
+        int nextEscapeIndex(CharSequence text, int start, int end) {
+            String[] table = this.table;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (c < table.length ? table[c] != null
+                        : others.length != 0 && Arrays.binarySearch(others, c) >= 0) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        int escape(CharSequence text, int index, int end, Appendable out) throws IOException {
+            char c = text.charAt(index);
+            out.append(c < table.length ? table[c] : otherReplacements[Arrays.binarySearch(others, c)]);
+            return index + 1;
+        }
+    }
+
+    /**
+     * Percent-encodes in UTF-8 all characters but ASCII letters, digits and
+     * the given safe characters. A surrogate that is not part of a pair is
+     * encoded as the replacement character U+FFFD.
+     */
+    private static final class PercentEscaper extends Escaper {
+        private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+        private final boolean[] safe = new boolean[128];
+
+        PercentEscaper(String safeChars) {
+            for (char c = '0'; c <= '9'; c++) {
+                safe[c] = true;
+            }
+            for (char c = 'A'; c <= 'Z'; c++) {
+                safe[c] = true;
+                safe[c + ('a' - 'A')] = true;
+            }
+            for (int i = 0; i < safeChars.length(); i++) {
+                safe[safeChars.charAt(i)] = true;
+            }
+        }
+
+        @Override
+        int nextEscapeIndex(CharSequence text, int start, int end) {
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (c >= 128 || !safe[c]) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        int escape(CharSequence text, int index, int end, Appendable out) throws IOException {
+            char c = text.charAt(index);
+            int codePoint = c;
+            int next = index + 1;
+            if (Character.isHighSurrogate(c) && next < end && Character.isLowSurrogate(text.charAt(next))) {
+                codePoint = Character.toCodePoint(c, text.charAt(next++));
+            } else if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+                codePoint = 0xfffd;
+            }
+
+            if (codePoint < 0x80) {
+                appendByte(out, codePoint);
+            } else if (codePoint < 0x800) {
+                appendByte(out, 0xc0 | (codePoint >> 6));
+                appendByte(out, 0x80 | (codePoint & 0x3f));
+            } else if (codePoint < 0x10000) {
+                appendByte(out, 0xe0 | (codePoint >> 12));
+                appendByte(out, 0x80 | ((codePoint >> 6) & 0x3f));
+                appendByte(out, 0x80 | (codePoint & 0x3f));
+            } else {
+                appendByte(out, 0xf0 | (codePoint >> 18));
+                appendByte(out, 0x80 | ((codePoint >> 12) & 0x3f));
+                appendByte(out, 0x80 | ((codePoint >> 6) & 0x3f));
+                appendByte(out, 0x80 | (codePoint & 0x3f));
+            }
+            return next;
+        }
+
+        private static void appendByte(Appendable out, int b) throws IOException {
+            out.append('%');
+            out.append(HEX_DIGITS[b >> 4]);
+            out.append(HEX_DIGITS[b & 0xf]);
+        }
+    }
+
+    private static String[] jsonTable() {
+        String[] table = new String[128];
+        for (int c = 0; c < 0x20; c++) {
+            table[c] = unicodeEscape((char) c);
+        }
+        table['\b'] = "\\b";
+        table['\t'] = "\\t";
+        table['\n'] = "\\n";
+        table['\f'] = "\\f";
+        table['\r'] = "\\r";
+        table['"'] = "\\\"";
+        table['\\'] = "\\\\";
+        table['/'] = "\\/";
+        return table;
+    }
+
+    private static String[] javaScriptTable() {
+        String[] table = jsonTable();
+        table['\''] = "\\'";
+        table['<'] = unicodeEscape('<');
+        table['>'] = unicodeEscape('>');
+        table['&'] = unicodeEscape('&');
+        return table;
+    }
+
+    private static String[] htmlTable() {
+        String[] table = new String['>' + 1];
+        table['&'] = "&amp;";
+        table['<'] = "&lt;";
+        table['>'] = "&gt;";
+        table['"'] = "&quot;";
+        table['\''] = "&#39;";
+        return table;
+    }
+
+    private static String[] sqlTable() {
+        String[] table = new String['\'' + 1];
+        table['\''] = "''";
+        return table;
+    }
+
+    private static String unicodeEscape(char c) {
+        String hex = Integer.toHexString(c).toUpperCase();
+        return "\\u0000".substring(0, 6 - hex.length()) + hex;
+    }
+}
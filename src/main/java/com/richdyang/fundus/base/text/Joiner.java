@@ -1,15 +1,22 @@
 package com.richdyang.fundus.base.text;
 
 import static com.richdyang.fundus.base.ArgumentAssert.notNull;
+import static com.richdyang.fundus.base.Charsets.UTF_8;
 import static java.lang.String.valueOf;
 import static java.util.Arrays.asList;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.RandomAccess;
 
 /**
  * An object which joins pieces of text (specified as an array, {@link Iterable}
@@ -50,6 +57,11 @@ import java.util.Map.Entry;
  */
 public class Joiner {
 
+    /**
+     * Transforms each element before it is joined, including the elements of
+     * primitive arrays, which are then boxed; the result is converted to text
+     * as the element itself would be.
+     */
     public static interface ElementHandler {
 
         Object handle(Object element);
@@ -71,6 +83,10 @@ public class Joiner {
         return new MapJoiner(on(separator), notNull(keyValueSeparator));
     }
 
+    /**
+     * Returns a joiner which automatically places {@code separator} between
+     * consecutive elements, after passing each of them to {@code handler}.
+     */
     public static Joiner on(String separator, ElementHandler handler) {
         return new Joiner(separator, handler);
     }
@@ -83,12 +99,6 @@ public class Joiner {
         return new Joiner(valueOf(separator));
     }
 
-    private final String separator;
-
-    private Joiner(String separator) {
-        this.separator = notNull(separator);
-    }
-
     private static final ElementHandler DEFAULT_HANDLER = new ElementHandler() {
 
         public Object handle(Object element) {
@@ -97,15 +107,21 @@ public class Joiner {
         }
     };
 
-    private ElementHandler handler = DEFAULT_HANDLER;
+    private final String separator;
+    private final ElementHandler handler;
+
+    private Joiner(String separator) {
+        this(separator, DEFAULT_HANDLER);
+    }
 
     private Joiner(String separator, ElementHandler handler) {
         this.separator = notNull(separator);
-        this.handler = handler;
+        this.handler = notNull(handler);
     }
 
     private Joiner(Joiner prototype) {
         this.separator = prototype.separator;
+        this.handler = prototype.handler;
     }
 
     /**
@@ -116,17 +132,38 @@ public class Joiner {
      */
     protected <A extends Appendable> A appendTo(A appendable, Iterable<?> parts) throws IOException {
         notNull(appendable);
-        Iterator<?> iterator = parts.iterator();
-        if (iterator.hasNext()) {
-            appendable.append(toString(iterator.next()));
-            while (iterator.hasNext()) {
-                appendable.append(separator);
-                appendable.append(toString(handler.handle(iterator.next())));
+        boolean first = true;
+        if (presizable(parts)) {
+            List<?> list = (List<?>) parts;
+            for (int i = 0, size = list.size(); i < size; i++) {
+                first = append(appendable, list.get(i), first);
+            }
+        } else {
+            for (Object part : parts) {
+                first = append(appendable, part, first);
             }
         }
         return appendable;
     }
 
+    /**
+     * Appends {@code part} unless it is skipped, preceded by the separator
+     * unless it is the {@code first} part appended.
+     *
+     * @return whether the next part appended will be the first
+     */
+    private boolean append(Appendable appendable, Object part, boolean first) throws IOException {
+        CharSequence piece = piece(part);
+        if (piece == null) {
+            return first;
+        }
+        if (!first) {
+            appendable.append(separator);
+        }
+        appendable.append(piece);
+        return false;
+    }
+
     /**
      * Appends the string representation of each of {@code parts}, using the
      * previously configured separator between each, to {@code appendable}.
@@ -150,6 +187,9 @@ public class Joiner {
      * not throw {@link IOException}.
      */
     public final StringBuilder appendTo(StringBuilder builder, Iterable<?> parts) {
+        if (presizable(parts)) {
+            return pieces((List<?>) parts).appendTo(builder);
+        }
         try {
             appendTo((Appendable) builder, parts);
         } catch (IOException impossible) {
@@ -178,11 +218,70 @@ public class Joiner {
         return appendTo(builder, iterable(first, second, rest));
     }
 
+    /**
+     * Writes the string representation of each of {@code parts}, using the
+     * previously configured separator between each, to {@code writer}. The
+     * text is handed to the writer in chunks of a fixed size, whatever the
+     * number and size of the parts; the writer is neither flushed nor closed.
+     */
+    public final <W extends Writer> W writeTo(W writer, Iterable<?> parts) throws IOException {
+        return writeTo(StreamingAppender.to(notNull(writer)), parts, writer);
+    }
+
+    /**
+     * Writes the string representation of each of {@code parts}, using the
+     * previously configured separator between each, to {@code out} as UTF-8.
+     * The text is encoded through a buffer of a fixed size, whatever the
+     * number and size of the parts; the stream is neither flushed nor closed.
+     */
+    public final <S extends OutputStream> S writeTo(S out, Iterable<?> parts) throws IOException {
+        return writeTo(out, UTF_8, parts);
+    }
+
+    /**
+     * Writes the string representation of each of {@code parts}, using the
+     * previously configured separator between each, to {@code out} encoded
+     * with {@code charset}, as {@link #writeTo(OutputStream, Iterable)} does.
+     */
+    public final <S extends OutputStream> S writeTo(S out, Charset charset, Iterable<?> parts) throws IOException {
+        return writeTo(StreamingAppender.to(notNull(out), notNull(charset)), parts, out);
+    }
+
+    /**
+     * Writes the string representation of each of {@code parts}, using the
+     * previously configured separator between each, to {@code channel} as
+     * UTF-8, as {@link #writeTo(OutputStream, Iterable)} does. The channel
+     * must be in blocking mode.
+     */
+    public final <C extends WritableByteChannel> C writeTo(C channel, Iterable<?> parts) throws IOException {
+        return writeTo(channel, UTF_8, parts);
+    }
+
+    /**
+     * Writes the string representation of each of {@code parts}, using the
+     * previously configured separator between each, to {@code channel}
+     * encoded with {@code charset}, as
+     * {@link #writeTo(OutputStream, Iterable)} does. The channel must be in
+     * blocking mode.
+     */
+    public final <C extends WritableByteChannel> C writeTo(C channel, Charset charset, Iterable<?> parts) throws IOException {
+        return writeTo(StreamingAppender.to(notNull(channel), notNull(charset)), parts, channel);
+    }
+
+    private <T> T writeTo(StreamingAppender appender, Iterable<?> parts, T target) throws IOException {
+        appendTo(appender, notNull(parts));
+        appender.finish();
+        return target;
+    }
+
     /**
      * Returns a string containing the string representation of each of {@code
      * parts}, using the previously configured separator between each.
      */
     public final String join(Iterable<?> parts) {
+        if (presizable(parts)) {
+            return pieces((List<?>) parts).join();
+        }
         return appendTo(new StringBuilder(), parts).toString();
     }
 
@@ -191,7 +290,11 @@ public class Joiner {
      * parts}, using the previously configured separator between each.
      */
     public final String join(Object[] parts) {
-        return join(asList(parts));
+        Pieces pieces = new Pieces(parts.length);
+        for (Object part : parts) {
+            pieces.add(part);
+        }
+        return pieces.join();
     }
 
     /**
@@ -199,7 +302,257 @@ public class Joiner {
      * using the previously configured separator between each.
      */
     public final String join(Object first, Object second, Object... rest) {
-        return join(iterable(first, second, rest));
+        Pieces pieces = new Pieces(notNull(rest).length + 2);
+        pieces.add(first);
+        pieces.add(second);
+        for (Object part : rest) {
+            pieces.add(part);
+        }
+        return pieces.join();
+    }
+
+    /**
+     * Returns a string containing the decimal representation of each of
+     * {@code parts}, using the previously configured separator between each.
+     * The digits are written straight into the result, without boxing the
+     * values, unless an element handler is configured.
+     */
+    public final String join(int[] parts) {
+        if (handler != DEFAULT_HANDLER) {
+            Pieces pieces = new Pieces(parts.length);
+            for (int part : parts) {
+                pieces.add(part);
+            }
+            return pieces.join();
+        }
+        if (parts.length == 0) {
+            return "";
+        }
+        int separatorLength = separator.length();
+        long length = (long) separatorLength * (parts.length - 1);
+        for (int part : parts) {
+            length += stringSize(part);
+        }
+        char[] chars = new char[checkedLength(length)];
+        int position = 0;
+        for (int i = 0; i < parts.length; i++) {
+            if (i != 0) {
+                separator.getChars(0, separatorLength, chars, position);
+                position += separatorLength;
+            }
+            position += stringSize(parts[i]);
+            getChars(parts[i], chars, position);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Returns a string containing the decimal representation of each of
+     * {@code parts}, using the previously configured separator between each.
+     * The digits are written straight into the result, without boxing the
+     * values, unless an element handler is configured.
+     */
+    public final String join(long[] parts) {
+        if (handler != DEFAULT_HANDLER) {
+            Pieces pieces = new Pieces(parts.length);
+            for (long part : parts) {
+                pieces.add(part);
+            }
+            return pieces.join();
+        }
+        if (parts.length == 0) {
+            return "";
+        }
+        int separatorLength = separator.length();
+        long length = (long) separatorLength * (parts.length - 1);
+        for (long part : parts) {
+            length += stringSize(part);
+        }
+        char[] chars = new char[checkedLength(length)];
+        int position = 0;
+        for (int i = 0; i < parts.length; i++) {
+            if (i != 0) {
+                separator.getChars(0, separatorLength, chars, position);
+                position += separatorLength;
+            }
+            position += stringSize(parts[i]);
+            getChars(parts[i], chars, position);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Returns a string containing the representation of each of
+     * {@code parts} given by {@link Double#toString(double)}, using the
+     * previously configured separator between each. The values are formatted
+     * straight into the result, without boxing them, unless an element
+     * handler is configured.
+     */
+    public final String join(double[] parts) {
+        if (handler != DEFAULT_HANDLER) {
+            Pieces pieces = new Pieces(parts.length);
+            for (double part : parts) {
+                pieces.add(part);
+            }
+            return pieces.join();
+        }
+        if (parts.length == 0) {
+            return "";
+        }
+        // most doubles take no more than a dozen characters
+        StringBuilder builder = new StringBuilder(
+                checkedLength((long) parts.length * (12 + separator.length())));
+        builder.append(parts[0]);
+        for (int i = 1; i < parts.length; i++) {
+            builder.append(separator).append(parts[i]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the number of characters of the decimal representation of
+     * {@code value}.
+     */
+    static int stringSize(long value) {
+        if (value < 0) {
+            return value == Long.MIN_VALUE ? 20 : 1 + stringSize(-value);
+        }
+        int size = 1;
+        for (long bound = 10; size < 19 && value >= bound; bound *= 10) {
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of characters of the decimal representation of
+     * {@code value}.
+     */
+    static int stringSize(int value) {
+        if (value < 0) {
+            return value == Integer.MIN_VALUE ? 11 : 1 + stringSize(-value);
+        }
+        int size = 1;
+        for (int bound = 10; size < 10 && value >= bound; bound *= 10) {
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Writes the decimal representation of {@code value} into {@code chars},
+     * backwards from {@code end}. The digits are computed on the negated
+     * value, which covers {@link Long#MIN_VALUE}.
+     */
+    static void getChars(long value, char[] chars, int end) {
+        boolean negative = value < 0;
+        if (!negative) {
+            value = -value;
+        }
+        do {
+            long quotient = value / 10;
+            chars[--end] = (char) ('0' + (quotient * 10 - value));
+            value = quotient;
+        } while (value != 0);
+        if (negative) {
+            chars[--end] = '-';
+        }
+    }
+
+    /**
+     * Writes the decimal representation of {@code value} into {@code chars},
+     * backwards from {@code end}.
+     */
+    static void getChars(int value, char[] chars, int end) {
+        boolean negative = value < 0;
+        if (!negative) {
+            value = -value;
+        }
+        do {
+            int quotient = value / 10;
+            chars[--end] = (char) ('0' + (quotient * 10 - value));
+            value = quotient;
+        } while (value != 0);
+        if (negative) {
+            chars[--end] = '-';
+        }
+    }
+
+    private static int checkedLength(long length) {
+        if (length > Integer.MAX_VALUE) {
+            throw new OutOfMemoryError("Required length exceeds implementation limit");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Returns {@code true} if {@code parts} can be joined by index and the
+     * result sized before copying the parts.
+     */
+    private static boolean presizable(Iterable<?> parts) {
+        return parts instanceof List && parts instanceof RandomAccess;
+    }
+
+    private Pieces pieces(List<?> parts) {
+        int size = parts.size();
+        Pieces pieces = new Pieces(size);
+        for (int i = 0; i < size; i++) {
+            pieces.add(parts.get(i));
+        }
+        return pieces;
+    }
+
+    /**
+     * Returns the text to append for {@code part}, or {@code null} if the part
+     * is to be skipped.
+     */
+    CharSequence piece(Object part) {
+        return toString(handler.handle(part));
+    }
+
+    /**
+     * The converted parts of a join, collected to compute the exact length of
+     * the result, so that it is copied into a buffer allocated only once.
+     */
+    private final class Pieces {
+        private final CharSequence[] pieces;
+        private int count;
+        private long length;
+
+        Pieces(int capacity) {
+            this.pieces = new CharSequence[capacity];
+        }
+
+        void add(Object part) {
+            CharSequence piece = piece(part);
+            if (piece != null) {
+                pieces[count++] = piece;
+                length += piece.length();
+            }
+        }
+
+        long length() {
+            return count == 0 ? 0 : length + (long) separator.length() * (count - 1);
+        }
+
+        StringBuilder appendTo(StringBuilder builder) {
+            builder.ensureCapacity(checkedLength(builder.length() + length()));
+            if (count != 0) {
+                builder.append(pieces[0]);
+                for (int i = 1; i < count; i++) {
+                    builder.append(separator);
+                    builder.append(pieces[i]);
+                }
+            }
+            return builder;
+        }
+
+        String join() {
+            if (count == 1 && pieces[0] instanceof String) {
+                return (String) pieces[0];
+            }
+            return appendTo(new StringBuilder(0)).toString();
+        }
     }
 
     /**
@@ -235,25 +588,8 @@ public class Joiner {
     public Joiner skipNulls() {
         return new Joiner(this) {
             @Override
-            public <A extends Appendable> A appendTo(A appendable, Iterable<?> parts) throws IOException {
-                notNull(appendable, "appendable");
-                notNull(parts, "parts");
-                Iterator<?> iterator = parts.iterator();
-                while (iterator.hasNext()) {
-                    Object part = iterator.next();
-                    if (part != null) {
-                        appendable.append(Joiner.this.toString(part));
-                        break;
-                    }
-                }
-                while (iterator.hasNext()) {
-                    Object part = iterator.next();
-                    if (part != null) {
-                        appendable.append(separator);
-                        appendable.append(Joiner.this.toString(part));
-                    }
-                }
-                return appendable;
+            CharSequence piece(Object part) {
+                return part == null ? null : Joiner.this.piece(part);
             }
 
             @Override
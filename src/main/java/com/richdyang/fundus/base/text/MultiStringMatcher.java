@@ -0,0 +1,425 @@
+package com.richdyang.fundus.base.text;
+
+import static com.richdyang.fundus.base.ArgumentAssert.indexInBounds;
+import static com.richdyang.fundus.base.ArgumentAssert.isTrue;
+import static com.richdyang.fundus.base.ArgumentAssert.notNull;
+import static com.richdyang.fundus.base.ArgumentAssert.state;
+import static java.lang.System.arraycopy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Finds, removes or replaces the occurrences of any of a set of strings in a
+ * single pass over the input, however many strings there are. For example,
+ * <p>
+ * <pre>
+ *   Map&lt;String, String&gt; entities = new HashMap&lt;String, String&gt;();
+ *   entities.put("&amp;amp;", "&amp;");
+ *   entities.put("&amp;lt;", "&lt;");
+ *   entities.put("&amp;gt;", "&gt;");
+ *   MultiStringMatcher.replacing(entities).replaceFrom("a &amp;lt; b &amp;amp;&amp;amp; c")
+ * </pre>
+ * <p>
+ * returns {@code "a < b && c"}. When occurrences overlap, the one starting
+ * first is taken, and of those starting at the same index the longest one;
+ * the search resumes after it, so the occurrences found never overlap.
+ * <p>
+ * <p>
+ * The strings are compiled, reversed, into an Aho-Corasick automaton, with
+ * the failure transitions resolved ahead of time. The input is read backwards
+ * a block at a time, which gives the longest string starting at each index of
+ * the block, and the occurrences are then picked forwards from those. As a
+ * block is at least as long as the strings it reads ahead for, every
+ * character of the input costs at most two table lookups, so matching takes
+ * linear time whatever the strings. The table has a row per suffix of
+ * the strings and a column per distinct character in them. A matcher is
+ * immutable and thread-safe; it should be built once and reused.
+ *
+ * @author <a href="mailto:richd.yang@gmail.com">Richard Yang</a>
+ * @since fundus
+ */
+public final class MultiStringMatcher {
+    private static final int MIN_BLOCK_SIZE = 1 << 8;
+
+    private final String[] patterns;
+    private final String[] replacements;
+
+    private final CharClasses classes;
+    private final int width;
+    /**
+     * The number of indexes a block has the longest pattern starting at, at
+     * least as many as the characters it reads ahead.
+     */
+    private final int blockSize;
+
+    /**
+     * The automaton of the reversed patterns:
+     * {@code transitions[state * width + class]} is the next state, state 0
+     * being the initial one, and {@code matches[state]} the index of the
+     * longest pattern whose reversal ends the reversed text read, that is the
+     * longest pattern starting at the index reached, or -1.
+     */
+    private final int[] transitions;
+    private final int[] matches;
+
+    private MultiStringMatcher(String[] patterns, String[] replacements) {
+        isTrue(patterns.length != 0, "at least one pattern is required");
+        this.patterns = patterns;
+        this.replacements = replacements;
+
+        StringBuilder chars = new StringBuilder();
+        int maxLength = 0;
+        for (String pattern : patterns) {
+            isTrue(pattern.length() != 0, "The pattern may not be the empty string.");
+            chars.append(pattern);
+            maxLength = Math.max(maxLength, pattern.length());
+        }
+        this.blockSize = Math.max(maxLength, MIN_BLOCK_SIZE);
+        int total = chars.length();
+        this.classes = new CharClasses(chars);
+        this.width = classes.count();
+
+        // the trie of the reversed patterns
+        int[] transitions = new int[(total + 1) * width];
+        int[] matches = new int[total + 1];
+        Arrays.fill(matches, -1);
+        int states = 1;
+        for (int p = 0; p < patterns.length; p++) {
+            String pattern = patterns[p];
+            int state = 0;
+            for (int i = pattern.length() - 1; i >= 0; i--) {
+                int slot = state * width + classes.classOf(pattern.charAt(i));
+                if (transitions[slot] == 0) {
+                    transitions[slot] = states++;
+                }
+                state = transitions[slot];
+            }
+            matches[state] = p;
+        }
+
+        // breadth first, complete the transitions with those of the failure states
+        int[] failures = new int[states];
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        for (int c = 0; c < width; c++) {
+            if (transitions[c] != 0) {
+                queue[tail++] = transitions[c];
+            }
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            if (matches[state] == -1) {
+                matches[state] = matches[failures[state]];
+            }
+            int failure = failures[state];
+            for (int c = 0; c < width; c++) {
+                int slot = state * width + c;
+                int next = transitions[slot];
+                if (next != 0) {
+                    failures[next] = transitions[failure * width + c];
+                    queue[tail++] = next;
+                } else {
+                    transitions[slot] = transitions[failure * width + c];
+                }
+            }
+        }
+
+        this.transitions = copyOf(transitions, states * width);
+        this.matches = copyOf(matches, states);
+    }
+
+    // Arrays.copyOf() requires Java 6
+    private static int[] copyOf(int[] original, int length) {
+        int[] copy = new int[length];
+        arraycopy(original, 0, copy, 0, length);
+        return copy;
+    }
+
+    /**
+     * Returns a matcher of any of {@code patterns}.
+     *
+     * @throws IllegalArgumentException if there are no patterns, or one of them
+     *                                  is empty
+     */
+    public static MultiStringMatcher of(String... patterns) {
+        return new MultiStringMatcher(notNull(patterns).clone(), null);
+    }
+
+    /**
+     * Returns a matcher of any of {@code patterns}.
+     *
+     * @throws IllegalArgumentException if there are no patterns, or one of them
+     *                                  is empty
+     */
+    public static MultiStringMatcher of(Iterable<String> patterns) {
+        List<String> list = new ArrayList<String>();
+        for (String pattern : notNull(patterns)) {
+            list.add(notNull(pattern));
+        }
+        return new MultiStringMatcher(list.toArray(new String[list.size()]), null);
+    }
+
+    /**
+     * Returns a matcher of any of the keys of {@code replacements}, which
+     * {@linkplain #replaceFrom(CharSequence) replaces} them with their values.
+     *
+     * @throws IllegalArgumentException if there are no keys, or one of them is
+     *                                  empty
+     */
+    public static MultiStringMatcher replacing(Map<String, String> replacements) {
+        int size = notNull(replacements).size();
+        String[] patterns = new String[size];
+        String[] values = new String[size];
+        int i = 0;
+        for (Entry<String, String> entry : replacements.entrySet()) {
+            patterns[i] = notNull(entry.getKey());
+            values[i++] = notNull(entry.getValue());
+        }
+        return new MultiStringMatcher(patterns, values);
+    }
+
+    /**
+     * Returns the index of the first occurrence of any of the patterns in
+     * {@code sequence}, or {@code -1} if there is none.
+     */
+    public int indexIn(CharSequence sequence) {
+        return indexIn(sequence, 0);
+    }
+
+    /**
+     * Returns the index of the first occurrence of any of the patterns in
+     * {@code sequence} at or after {@code start}, or {@code -1} if there is
+     * none.
+     *
+     * @throws IndexOutOfBoundsException if start is negative or greater than
+     *                                   {@code sequence.length()}
+     */
+    public int indexIn(CharSequence sequence, int start) {
+        indexInBounds(start, sequence.length(), sequence.length());
+        long match = new Scan(sequence, null, start, sequence.length()).next();
+        return match == -1 ? -1 : start(match);
+    }
+
+    /**
+     * Returns the index of the first occurrence of any of the patterns in
+     * {@code chars} from {@code start} to {@code end}, or {@code -1} if there
+     * is none.
+     */
+    public int indexIn(char[] chars, int start, int end) {
+        indexInBounds(start, end, chars.length);
+        long match = new Scan(null, chars, start, end).next();
+        return match == -1 ? -1 : start(match);
+    }
+
+    /**
+     * Returns the number of occurrences of the patterns in {@code sequence}.
+     */
+    public int countIn(CharSequence sequence) {
+        return count(new Scan(sequence, null, 0, sequence.length()));
+    }
+
+    /**
+     * Returns the number of occurrences of the patterns in {@code chars} from
+     * {@code start} to {@code end}.
+     */
+    public int countIn(char[] chars, int start, int end) {
+        indexInBounds(start, end, chars.length);
+        return count(new Scan(null, chars, start, end));
+    }
+
+    private static int count(Scan scan) {
+        int count = 0;
+        while (scan.next() != -1) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns a string containing the characters of {@code sequence}, minus
+     * the occurrences of the patterns.
+     */
+    public String removeFrom(CharSequence sequence) {
+        return replaceFrom(sequence, "");
+    }
+
+    /**
+     * Returns a string containing the characters of {@code chars} from
+     * {@code start} to {@code end}, minus the occurrences of the patterns.
+     */
+    public String removeFrom(char[] chars, int start, int end) {
+        return replaceFrom(chars, start, end, "");
+    }
+
+    /**
+     * Returns a string copy of {@code sequence}, with each occurrence of the
+     * patterns replaced by {@code replacement}.
+     */
+    public String replaceFrom(CharSequence sequence, CharSequence replacement) {
+        notNull(replacement);
+        return replace(sequence, replacement);
+    }
+
+    /**
+     * Returns a string copy of {@code chars} from {@code start} to
+     * {@code end}, with each occurrence of the patterns replaced by
+     * {@code replacement}.
+     */
+    public String replaceFrom(char[] chars, int start, int end, CharSequence replacement) {
+        notNull(replacement);
+        indexInBounds(start, end, chars.length);
+        return replace(chars, start, end, replacement);
+    }
+
+    /**
+     * Returns a string copy of {@code sequence}, with each occurrence of the
+     * patterns replaced by its replacement.
+     *
+     * @throws IllegalStateException if this matcher was not created by
+     *                               {@link #replacing(Map)}
+     */
+    public String replaceFrom(CharSequence sequence) {
+        state(replacements != null, "no replacements specified");
+        return replace(sequence, null);
+    }
+
+    /**
+     * Returns a string copy of {@code chars} from {@code start} to
+     * {@code end}, with each occurrence of the patterns replaced by its
+     * replacement.
+     *
+     * @throws IllegalStateException if this matcher was not created by
+     *                               {@link #replacing(Map)}
+     */
+    public String replaceFrom(char[] chars, int start, int end) {
+        state(replacements != null, "no replacements specified");
+        indexInBounds(start, end, chars.length);
+        return replace(chars, start, end, null);
+    }
+
+    private String replace(CharSequence sequence, CharSequence replacement) {
+        int end = sequence.length();
+        Scan scan = new Scan(sequence, null, 0, end);
+        long match = scan.next();
+        if (match == -1) {
+            return sequence.toString();
+        }
+        StringBuilder builder = new StringBuilder(end);
+        int copied = 0;
+        do {
+            builder.append(sequence, copied, start(match));
+            builder.append(replacement != null ? replacement : replacements[pattern(match)]);
+            copied = end(match);
+            match = scan.next();
+        } while (match != -1);
+        return builder.append(sequence, copied, end).toString();
+    }
+
+    private String replace(char[] chars, int start, int end, CharSequence replacement) {
+        Scan scan = new Scan(null, chars, start, end);
+        long match = scan.next();
+        if (match == -1) {
+            return new String(chars, start, end - start);
+        }
+        StringBuilder builder = new StringBuilder(end - start);
+        int copied = start;
+        do {
+            builder.append(chars, copied, start(match) - copied);
+            builder.append(replacement != null ? replacement : replacements[pattern(match)]);
+            copied = end(match);
+            match = scan.next();
+        } while (match != -1);
+        return builder.append(chars, copied, end - copied).toString();
+    }
+
+    /*
+     * A match is packed into a long: the start index in the high half, the
+     * pattern index in the low half.
+     */
+
+    private static int start(long match) {
+        return (int) (match >>> 32);
+    }
+
+    private static int pattern(long match) {
+        return (int) match;
+    }
+
+    private int end(long match) {
+        return start(match) + patterns[pattern(match)].length();
+    }
+
+    /**
+     * The leftmost-longest matches of a range of a {@code CharSequence} or a
+     * {@code char[]}, found in turn. A block of indexes is filled with the
+     * longest pattern starting at each of them by reading the block, and the
+     * characters after it a pattern starting in it may cover, backwards;
+     * the matches are then picked forwards, each resuming after the last.
+     */
+    private final class Scan {
+        private final CharSequence sequence;
+        private final char[] chars;
+        private final int end;
+        private final int[] longest;
+        private int blockStart;
+        private int blockEnd;
+        private int position;
+
+        Scan(CharSequence sequence, char[] chars, int start, int end) {
+            this.sequence = sequence;
+            this.chars = chars;
+            this.end = end;
+            this.longest = new int[Math.min(blockSize, end - start)];
+            this.blockStart = start;
+            this.blockEnd = start;
+            this.position = start;
+        }
+
+        /**
+         * Returns the next match, or -1 if there is none.
+         */
+        long next() {
+            while (position < end) {
+                if (position >= blockEnd) {
+                    fill(position);
+                }
+                int pattern = longest[position - blockStart];
+                if (pattern != -1) {
+                    long match = (long) position << 32 | pattern;
+                    position += patterns[pattern].length();
+                    return match;
+                }
+                position++;
+            }
+            return -1;
+        }
+
+        private void fill(int start) {
+            blockStart = start;
+            blockEnd = Math.min(start + longest.length, end);
+            // a pattern starting before blockEnd ends before blockEnd - 1 + blockSize
+            int limit = (int) Math.min((long) blockEnd - 1 + blockSize, end);
+            int state = 0;
+            if (chars != null) {
+                for (int i = limit - 1; i >= start; i--) {
+                    state = transitions[state * width + classes.classOf(chars[i])];
+                    if (i < blockEnd) {
+                        longest[i - start] = matches[state];
+                    }
+                }
+            } else {
+                for (int i = limit - 1; i >= start; i--) {
+                    state = transitions[state * width + classes.classOf(sequence.charAt(i))];
+                    if (i < blockEnd) {
+                        longest[i - start] = matches[state];
+                    }
+                }
+            }
+        }
+    }
+}
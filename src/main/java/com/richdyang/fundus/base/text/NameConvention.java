@@ -1,9 +1,15 @@
 package com.richdyang.fundus.base.text;
 
 
+import static com.richdyang.fundus.base.ArgumentAssert.isTrue;
+import static com.richdyang.fundus.base.ArgumentAssert.notNull;
 import static com.richdyang.fundus.base.text.CharMatcher.*;
 import static java.lang.System.out;
 
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * Utility class for converting between various ASCII case formats.
  *
@@ -46,6 +52,22 @@ public enum NameConvention {
         this.wordSeparator = wordSeparator;
     }
 
+    private static final int KEEP_CASE = 0;
+    private static final int UPPER_CASE = 1;
+    private static final int LOWER_CASE = 2;
+
+    private static final Converter[][] CONVERTERS;
+
+    static {
+        NameConvention[] conventions = values();
+        CONVERTERS = new Converter[conventions.length][conventions.length];
+        for (NameConvention from : conventions) {
+            for (NameConvention to : conventions) {
+                CONVERTERS[from.ordinal()][to.ordinal()] = new Converter(from, to, 0);
+            }
+        }
+    }
+
     /**
      * Converts the specified {@code String s} from this format to the specified {@code format}. A
      * "best effort" approach is taken; if {@code s} does not conform to the assumed format, then the
@@ -58,113 +80,205 @@ public enum NameConvention {
         if (s == null) {
             throw new NullPointerException();
         }
+        return CONVERTERS[ordinal()][format.ordinal()].convert(s);
+    }
 
-        if (format == this) {
-            return s;
+    /**
+     * Returns a converter of names from the {@code from} format to the
+     * {@code to} format, which converts as {@link #to(NameConvention, String)}
+     * does. The way to convert is decided once, when the converter is
+     * created, and each name is converted in a single pass into a single
+     * array; a converter can also {@linkplain Converter#cached(int) remember}
+     * the names it has converted.
+     *
+     * @throws IllegalArgumentException if {@code to} is {@link #UNCLASSIFIED}
+     *                                  and {@code from} is not
+     */
+    public static Converter converter(NameConvention from, NameConvention to) {
+        notNull(from);
+        notNull(to);
+        isTrue(to != UNCLASSIFIED || from == UNCLASSIFIED, "cannot convert to {0}", UNCLASSIFIED);
+        return CONVERTERS[from.ordinal()][to.ordinal()];
+    }
+
+    /**
+     * Converts names between two conventions, obtained from
+     * {@link NameConvention#converter(NameConvention, NameConvention)}.
+     * Converters are immutable and thread-safe.
+     */
+    public static final class Converter {
+        private final NameConvention from;
+        private final NameConvention to;
+
+        /**
+         * When no camel conversion is required, names are converted by
+         * replacing {@link #separatorFrom} with {@link #separatorTo} and
+         * changing the case of the letters as {@link #caseMode} says.
+         */
+        private final boolean translate;
+        private final char separatorFrom;
+        private final char separatorTo;
+        private final int caseMode;
+
+        private final ConcurrentMap<String, String> cache;
+        private final int maximumCacheSize;
+
+        private Converter(NameConvention from, NameConvention to, int maximumCacheSize) {
+            this.from = from;
+            this.to = to;
+            this.maximumCacheSize = maximumCacheSize;
+            this.cache = maximumCacheSize == 0 ? null
+                    : new ConcurrentHashMap<String, String>(maximumCacheSize);
+
+            int caseMode = -1;
+            if (from == LOWER_HYPHEN && (to == LOWER_UNDERSCORE || to == UPPER_UNDERSCORE)) {
+                caseMode = to == UPPER_UNDERSCORE ? UPPER_CASE : KEEP_CASE;
+            } else if (from == LOWER_UNDERSCORE && (to == LOWER_HYPHEN || to == UPPER_UNDERSCORE)) {
+                caseMode = to == UPPER_UNDERSCORE ? UPPER_CASE : KEEP_CASE;
+            } else if (from == UPPER_UNDERSCORE && (to == LOWER_HYPHEN || to == LOWER_UNDERSCORE)) {
+                caseMode = LOWER_CASE;
+            }
+            this.translate = caseMode != -1;
+            this.caseMode = caseMode;
+            this.separatorFrom = translate ? from.wordSeparator.charAt(0) : 0;
+            this.separatorTo = translate ? to.wordSeparator.charAt(0) : 0;
         }
 
-    /* optimize cases where no camel conversion is required */
-        switch (this) {
-            case LOWER_HYPHEN:
-                switch (format) {
-                    case LOWER_UNDERSCORE:
-                        return s.replace('-', '_');
-                    case UPPER_UNDERSCORE:
-                        return toUpperCaseAscii(s.replace('-', '_'));
+        /**
+         * Converts {@code name}, as
+         * {@link NameConvention#to(NameConvention, String)} does.
+         */
+        public String convert(String name) {
+            notNull(name);
+            if (cache == null) {
+                return convertUncached(name);
+            }
+            String converted = cache.get(name);
+            if (converted == null) {
+                converted = convertUncached(name);
+                if (cache.putIfAbsent(name, converted) == null) {
+                    // evicts arbitrary names, one at a time, to keep the cache bounded
+                    for (Iterator<String> names = cache.keySet().iterator();
+                         cache.size() > maximumCacheSize && names.hasNext(); ) {
+                        if (!names.next().equals(name)) {
+                            names.remove();
+                        }
+                    }
                 }
-                break;
-            case LOWER_UNDERSCORE:
-                switch (format) {
-                    case LOWER_HYPHEN:
-                        return s.replace('_', '-');
-                    case UPPER_UNDERSCORE:
-                        return toUpperCaseAscii(s);
+            }
+            return converted;
+        }
+
+        /**
+         * Returns a converter equivalent to this one, which remembers up to
+         * {@code maximumSize} names it has converted, and their conversions.
+         * Meant for the small sets of names converted over and over, like the
+         * properties and columns of a mapping layer; when more names are
+         * converted, arbitrary remembered ones are forgotten, one for each new
+         * name.
+         */
+        public Converter cached(int maximumSize) {
+            isTrue(maximumSize > 0, "the maximum size must be positive: {0}", maximumSize);
+            return new Converter(from, to, maximumSize);
+        }
+
+        private String convertUncached(String name) {
+            if (from == to) {
+                return name;
+            }
+            if (translate) {
+                return translate(name);
+            }
+            return from.convertWords(to, name);
+        }
+
+        private String translate(String name) {
+            int length = name.length();
+            char[] chars = null;
+            for (int i = 0; i < length; i++) {
+                char c = name.charAt(i);
+                char converted = c == separatorFrom ? separatorTo
+                        : caseMode == UPPER_CASE ? charToUpperCaseAscii(c)
+                        : caseMode == LOWER_CASE ? charToLowerCaseAscii(c)
+                        : c;
+                if (converted != c && chars == null) {
+                    chars = new char[length];
+                    name.getChars(0, i, chars, 0);
                 }
-                break;
-            case UPPER_UNDERSCORE:
-                switch (format) {
-                    case LOWER_HYPHEN:
-                        return toLowerCaseAscii(s.replace('_', '-'));
-                    case LOWER_UNDERSCORE:
-                        return toLowerCaseAscii(s);
+                if (chars != null) {
+                    chars[i] = converted;
                 }
-                break;
+            }
+            return chars == null ? name : new String(chars);
         }
+    }
 
-        // otherwise, deal with camel conversion
-        StringBuilder out = null;
+    /**
+     * Converts {@code s} from this format to {@code format} word by word.
+     * Every word of {@code s} is written straight into one array, large
+     * enough for a separator after every character.
+     */
+    private String convertWords(NameConvention format, String s) {
+        int length = s.length();
+        int separatorLength = wordSeparator.length();
+        char[] chars = new char[length + length * format.wordSeparator.length()];
+        int position = 0;
         int i = 0;
         int j = -1;
         while ((j = wordBoundary.indexIn(s, ++j)) != -1) {
-            if (i == 0) {
-                // include some extra space for separators
-                out = new StringBuilder(s.length() + 4 * wordSeparator.length());
-                out.append(format.normalizeFirstWord(s.substring(i, j)));
-            } else {
-                out.append(format.normalizeWord(s.substring(i, j)));
-            }
-            out.append(format.wordSeparator);
-            i = j + wordSeparator.length();
+            // a boundary before any word restarts the output
+            position = format.appendWord(s, i, j, i == 0, chars, i == 0 ? 0 : position);
+            position = format.appendSeparator(chars, position);
+            i = j + separatorLength;
         }
         if (i == 0) {
-            return format.normalizeFirstWord(s);
-        }
-        out.append(format.normalizeWord(s.substring(i)));
-        return out.toString();
-    }
-
-    private String normalizeFirstWord(String word) {
-        switch (this) {
-            case LOWER_CAMEL:
-                return toLowerCaseAscii(word);
-            default:
-                return normalizeWord(word);
+            position = format.appendWord(s, 0, length, true, chars, 0);
+        } else {
+            position = format.appendWord(s, i, length, false, chars, position);
         }
+        return new String(chars, 0, position);
     }
 
-    private String normalizeWord(String word) {
+    /**
+     * Writes the word of {@code s} from {@code start} to {@code end},
+     * normalized for this format, into {@code chars} at {@code position}.
+     *
+     * @return the position after the word
+     */
+    private int appendWord(String s, int start, int end, boolean first, char[] chars, int position) {
         switch (this) {
             case LOWER_HYPHEN:
-                return toLowerCaseAscii(word);
             case LOWER_UNDERSCORE:
-                return toLowerCaseAscii(word);
+                return appendCase(s, start, end, LOWER_CASE, chars, position);
+            case UPPER_UNDERSCORE:
+                return appendCase(s, start, end, UPPER_CASE, chars, position);
             case LOWER_CAMEL:
-                return firstCharOnlyToUpper(word);
+                if (first) {
+                    return appendCase(s, start, end, LOWER_CASE, chars, position);
+                }
+                // fall through
             case UPPER_CAMEL:
-                return firstCharOnlyToUpper(word);
-            case UPPER_UNDERSCORE:
-                return toUpperCaseAscii(word);
+                if (start == end) {
+                    return position;
+                }
+                chars[position++] = charToUpperCaseAscii(s.charAt(start));
+                return appendCase(s, start + 1, end, LOWER_CASE, chars, position);
         }
         throw new RuntimeException("unknown case: " + this);
     }
 
-    private static String firstCharOnlyToUpper(String word) {
-        int length = word.length();
-        if (length == 0) {
-            return word;
-        }
-        return new StringBuilder(length)
-                .append(charToUpperCaseAscii(word.charAt(0)))
-                .append(toLowerCaseAscii(word.substring(1)))
-                .toString();
-    }
-
-    static String toUpperCaseAscii(String string) {
-        int length = string.length();
-        StringBuilder builder = new StringBuilder(length);
-        for (int i = 0; i < length; i++) {
-            builder.append(charToUpperCaseAscii(string.charAt(i)));
-        }
-        return builder.toString();
+    private int appendSeparator(char[] chars, int position) {
+        int length = wordSeparator.length();
+        wordSeparator.getChars(0, length, chars, position);
+        return position + length;
     }
 
-    static String toLowerCaseAscii(String string) {
-        int length = string.length();
-        StringBuilder builder = new StringBuilder(length);
-        for (int i = 0; i < length; i++) {
-            builder.append(charToLowerCaseAscii(string.charAt(i)));
+    private static int appendCase(String s, int start, int end, int caseMode, char[] chars, int position) {
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            chars[position++] = caseMode == UPPER_CASE ? charToUpperCaseAscii(c) : charToLowerCaseAscii(c);
         }
-        return builder.toString();
+        return position;
     }
 
     private static char charToUpperCaseAscii(char c) {
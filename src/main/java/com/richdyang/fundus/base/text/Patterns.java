@@ -17,11 +17,14 @@ public class Patterns {
      * Pattern p = Pattern.compile(wildcardToRegex("*.jpg"));
      * </code></pre>
      *
+     * To match many inputs, {@link Wildcard#compile(String) compile} the
+     * wildcard instead, or gather many wildcards in a {@link WildcardSet}.
+     *
      * @param wildcard wildcard expression string
      * @return given wildcard expression as regular expression
      */
     public static String wildcardToRegex(String wildcard) {
-        StringBuffer s = new StringBuffer(wildcard.length());
+        StringBuilder s = new StringBuilder(wildcard.length() + 8);
         s.append('^');
         for (int i = 0, is = wildcard.length(); i < is; i++) {
             char c = wildcard.charAt(i);
@@ -44,6 +47,7 @@ public class Patterns {
                 case '{':
                 case '}':
                 case '|':
+                case '+':
                 case '\\':
                     s.append('\\');
                     s.append(c);
@@ -2,16 +2,34 @@ package com.richdyang.fundus.base.text;
 
 import com.richdyang.fundus.base.ArgumentAssert;
 
+import static com.richdyang.fundus.base.ArgumentAssert.indexInBounds;
 import static com.richdyang.fundus.base.ArgumentAssert.isTrue;
 import static com.richdyang.fundus.base.ArgumentAssert.notNull;
 import static com.richdyang.fundus.base.ArgumentAssert.state;
 import static com.richdyang.fundus.base.text.CharMatcher.*;
 import static com.richdyang.fundus.base.text.Splitter.AbstractIterator.State.*;
+import static com.richdyang.fundus.base.Charsets.UTF_8;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.nio.channels.Channels.newReader;
 import static java.util.regex.Pattern.compile;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -87,19 +105,31 @@ import java.util.regex.PatternSyntaxException;
  * @author <a href="mailto:richd.yang@gmail.com">Richard Yang</a>
  */
 public final class Splitter {
+    /**
+     * Sequences are cut into at most this many chunks per processor for
+     * {@link #splitInParallel}, so that uneven chunks even out.
+     */
+    private static final int PARALLEL_CHUNKS_PER_PROCESSOR = 4;
+    /**
+     * Chunks shorter than this are not worth a task of their own.
+     */
+    private static final int PARALLEL_MIN_CHUNK_LENGTH = 1 << 16;
+
     private final CharMatcher trimmer;
     private final boolean omitEmptyStrings;
     private final Strategy strategy;
+    private final StringPool pool;
 
     private Splitter(Strategy strategy) {
-        this(strategy, false, NONE);
+        this(strategy, false, NONE, null);
     }
 
     private Splitter(Strategy strategy, boolean omitEmptyStrings,
-                     CharMatcher trimmer) {
+                     CharMatcher trimmer, StringPool pool) {
         this.strategy = strategy;
         this.omitEmptyStrings = omitEmptyStrings;
         this.trimmer = trimmer;
+        this.pool = pool;
     }
 
     /**
@@ -141,6 +171,11 @@ public final class Splitter {
                     int separatorEnd(int separatorPosition) {
                         return separatorPosition + 1;
                     }
+
+                    @Override
+                    boolean resynchronizes() {
+                        return true;
+                    }
                 };
             }
         });
@@ -157,6 +192,16 @@ public final class Splitter {
     public static Splitter on(final String separator) {
         isTrue(separator.length() != 0,
                 "The separator may not be the empty string.");
+        if (separator.length() == 1) {
+            return on(separator.charAt(0));
+        }
+
+        // preprocessed once per splitter, shared by all its iterators
+        final StringSearcher searcher = StringSearcher.compile(separator);
+        final int separatorLength = separator.length();
+        // occurrences of a separator without a border can never overlap, so
+        // every occurrence found from anywhere is one a split would find too
+        final boolean borderless = !hasBorder(separator);
 
         return new Splitter(new Strategy() {
             /* @Override */
@@ -165,31 +210,37 @@ public final class Splitter {
                 return new SplittingIterator(splitter, toSplit) {
                     @Override
                     public int separatorStart(int start) {
-                        int delimeterLength = separator.length();
-
-                        positions:
-                        for (int p = start, last = toSplit.length()
-                                - delimeterLength; p <= last; p++) {
-                            for (int i = 0; i < delimeterLength; i++) {
-                                if (toSplit.charAt(i + p) != separator
-                                        .charAt(i)) {
-                                    continue positions;
-                                }
-                            }
-                            return p;
-                        }
-                        return -1;
+                        return searcher.indexIn(toSplit, start);
                     }
 
                     @Override
                     public int separatorEnd(int separatorPosition) {
-                        return separatorPosition + separator.length();
+                        return separatorPosition + separatorLength;
+                    }
+
+                    @Override
+                    boolean resynchronizes() {
+                        return borderless;
                     }
                 };
             }
         });
     }
 
+    /**
+     * Returns {@code true} if a proper prefix of {@code separator} is also a
+     * suffix of it, which lets two of its occurrences overlap.
+     */
+    private static boolean hasBorder(String separator) {
+        int length = separator.length();
+        for (int k = 1; k < length; k++) {
+            if (separator.regionMatches(0, separator, length - k, k)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns a splitter that considers any subsequence matching {@code
      * pattern} to be a separator. For example, {@code
@@ -213,6 +264,17 @@ public final class Splitter {
                     final Splitter splitter, CharSequence toSplit) {
                 final Matcher matcher = separatorPattern.matcher(toSplit);
                 return new SplittingIterator(splitter, toSplit) {
+                    @Override
+                    void reset(CharSequence toSplit) {
+                        super.reset(toSplit);
+                        matcher.reset(toSplit);
+                    }
+
+                    @Override
+                    boolean separatorMayExtend() {
+                        return matcher.hitEnd();
+                    }
+
                     @Override
                     public int separatorStart(int start) {
                         return matcher.find(start) ? matcher.start() : -1;
@@ -273,6 +335,19 @@ public final class Splitter {
                     public int separatorEnd(int separatorPosition) {
                         return separatorPosition;
                     }
+
+                    @Override
+                    boolean resynchronizes() {
+                        return true;
+                    }
+
+                    @Override
+                    int cutAt(int position) {
+                        int remainder = position % length;
+                        int aligned = remainder == 0 ? position : position - remainder + length;
+                        return (aligned >= position && aligned < toSplit.length() ? aligned
+                                : -1);
+                    }
                 };
             }
         });
@@ -299,7 +374,7 @@ public final class Splitter {
      * @return a splitter with the desired configuration
      */
     public Splitter omitEmptyStrings() {
-        return new Splitter(strategy, true, trimmer);
+        return new Splitter(strategy, true, trimmer, pool);
     }
 
     /**
@@ -330,7 +405,76 @@ public final class Splitter {
     // TODO: throw if a trimmer was already specified!
     public Splitter trimResults(CharMatcher trimmer) {
         notNull(trimmer);
-        return new Splitter(strategy, omitEmptyStrings, trimmer);
+        return new Splitter(strategy, omitEmptyStrings, trimmer, pool);
+    }
+
+    /**
+     * Returns a splitter that behaves equivalently to {@code this} splitter,
+     * but returns the pieces from {@code pool}: a piece the pool already holds
+     * is returned without creating a new {@code String}, and the other pieces
+     * are added to it. Useful when the pieces are kept and many of them
+     * repeat, such as field names or codes.
+     *
+     * @param pool the pool of the pieces
+     * @return a splitter with the desired configuration
+     */
+    public Splitter interning(StringPool pool) {
+        notNull(pool);
+        return new Splitter(strategy, omitEmptyStrings, trimmer, pool);
+    }
+
+    /**
+     * Returns a {@code MapSplitter} which splits entries based on this
+     * splitter, and splits entries into keys and values using the specified
+     * separator.
+     */
+    public MapSplitter withKeyValueSeparator(String separator) {
+        return withKeyValueSeparator(on(separator));
+    }
+
+    /**
+     * Returns a {@code MapSplitter} which splits entries based on this
+     * splitter, and splits entries into keys and values using the specified
+     * separator.
+     */
+    public MapSplitter withKeyValueSeparator(char separator) {
+        return withKeyValueSeparator(on(separator));
+    }
+
+    /**
+     * Returns a {@code MapSplitter} which splits entries based on this
+     * splitter, and splits entries into keys and values using the specified
+     * key-value splitter. For example, {@code
+     * Splitter.on(';').trimResults().withKeyValueSeparator(Splitter.on('=').trimResults())}
+     * splits {@code "a = 1; b = 2"} into {@code {a=1, b=2}}.
+     * <p>
+     * Keys and values are pooled as the key-value splitter is
+     * {@linkplain #interning(StringPool) interning}, or else as this splitter
+     * is.
+     */
+    public MapSplitter withKeyValueSeparator(Splitter keyValueSplitter) {
+        StringPool pool = notNull(keyValueSplitter).pool != null ? keyValueSplitter.pool : this.pool;
+        return new MapSplitter(this, keyValueSplitter, pool, pool);
+    }
+
+    /**
+     * Returns the characters from {@code start} to {@code end} of
+     * {@code sequence}, from {@code pool} unless it is null.
+     */
+    private static String piece(StringPool pool, CharSequence sequence, int start, int end) {
+        return pool == null
+                ? sequence.subSequence(start, end).toString()
+                : pool.intern(sequence, start, end);
+    }
+
+    /**
+     * Returns the characters from {@code start} to {@code end} of
+     * {@code chars}, from {@code pool} unless it is null.
+     */
+    private static String piece(StringPool pool, char[] chars, int start, int end) {
+        return pool == null
+                ? new String(chars, start, end - start)
+                : pool.intern(chars, start, end);
     }
 
     /**
@@ -349,15 +493,456 @@ public final class Splitter {
         };
     }
 
+    /**
+     * Splits {@code sequence} on the threads of {@code executor} and returns
+     * the pieces in order; the pieces are exactly those
+     * {@link #split(CharSequence)} would return. Meant for large in-memory
+     * inputs, where producing the pieces, rather than finding the separators,
+     * dominates the cost of splitting.
+     * <p>
+     * <p>
+     * The sequence is cut into chunks at separators, each chunk is split by
+     * its own task and the results are concatenated. A sequence can only be
+     * cut at a separator found without scanning it from the beginning when
+     * that separator is a {@link #on(CharMatcher) character},
+     * {@linkplain #fixedLength(int) fixed length} or a
+     * {@linkplain #on(String) string} whose occurrences cannot overlap; for
+     * the other separators, and for short sequences, the sequence is split by
+     * the calling thread. The sequence must not be modified until this method
+     * returns.
+     *
+     * @param sequence the sequence of characters to split
+     * @param executor the executor running the splitting tasks
+     * @return a new list of the pieces split from {@code sequence}
+     * @throws IllegalStateException if the calling thread is interrupted while
+     *                               waiting for the tasks
+     */
+    public List<String> splitInParallel(CharSequence sequence, ExecutorService executor) {
+        notNull(sequence);
+        notNull(executor);
+
+        SplittingIterator cutter = strategy.iterator(this, sequence);
+        int length = sequence.length();
+        int chunks = min(PARALLEL_CHUNKS_PER_PROCESSOR
+                * Runtime.getRuntime().availableProcessors(), length / PARALLEL_MIN_CHUNK_LENGTH);
+        if (chunks < 2 || !cutter.resynchronizes()) {
+            List<String> pieces = new ArrayList<String>();
+            while (cutter.hasNext()) {
+                pieces.add(cutter.next());
+            }
+            return pieces;
+        }
+
+        List<Future<List<String>>> parts = new ArrayList<Future<List<String>>>(chunks);
+        try {
+            int start = 0;
+            for (int i = 1; i < chunks && start < length; i++) {
+                int target = (int) ((long) length * i / chunks);
+                int cut = cutter.cutAt(max(start + 1, target));
+                if (cut == -1) {
+                    break;
+                }
+                parts.add(executor.submit(new SplitTask(sequence, start, cut)));
+                start = cutter.separatorEnd(cut);
+            }
+            parts.add(executor.submit(new SplitTask(sequence, start, length)));
+
+            List<List<String>> results = new ArrayList<List<String>>(parts.size());
+            int size = 0;
+            for (Future<List<String>> part : parts) {
+                List<String> result = await(part);
+                results.add(result);
+                size += result.size();
+            }
+            List<String> pieces = new ArrayList<String>(size);
+            for (List<String> result : results) {
+                pieces.addAll(result);
+            }
+            return pieces;
+        } finally {
+            for (Future<List<String>> part : parts) {
+                part.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Splits one chunk of a sequence for {@link #splitInParallel}. The chunk
+     * is split through a view, so the pieces are copied once, straight from
+     * the sequence.
+     */
+    private final class SplitTask implements Callable<List<String>> {
+        private final CharSequence sequence;
+        private final int start;
+        private final int end;
+
+        SplitTask(CharSequence sequence, int start, int end) {
+            this.sequence = sequence;
+            this.start = start;
+            this.end = end;
+        }
+
+        public List<String> call() {
+            SplittingIterator pieces = strategy.iterator(Splitter.this,
+                    CharBuffer.wrap(sequence, start, end));
+            List<String> result = new ArrayList<String>();
+            while (pieces.advance()) {
+                result.add(piece(pool, sequence, start + pieces.pieceStart, start + pieces.pieceEnd));
+            }
+            return result;
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while splitting", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Returns a reusable cursor over the pieces of {@code sequence}. Unlike
+     * {@link #split(CharSequence)}, the cursor reports the bounds of each
+     * piece within {@code sequence} instead of allocating a {@code String}
+     * for it, and it can be {@linkplain SplitCursor#reset(CharSequence) reset}
+     * to split further sequences without allocating anything:
+     * <p>
+     * <pre>
+     *   SplitCursor cursor = Splitter.on(',').trimResults().cursor("");
+     *   for (String line : lines) {
+     *       cursor.reset(line);
+     *       while (cursor.next()) {
+     *           handle(line, cursor.start(), cursor.end());
+     *       }
+     *   }
+     * </pre>
+     * <p>
+     * The pieces are exactly those {@link #split(CharSequence)} would return.
+     * A cursor is not thread-safe.
+     *
+     * @param sequence the sequence of characters to split
+     * @return a cursor positioned before the first piece of {@code sequence}
+     */
+    public SplitCursor cursor(CharSequence sequence) {
+        notNull(sequence);
+        return new SplitCursor(strategy.iterator(this, sequence));
+    }
+
+    /**
+     * A reusable cursor over the pieces of a split sequence, obtained from
+     * {@link Splitter#cursor(CharSequence)}. The cursor is itself a
+     * {@code CharSequence} view of the current piece, backed by the input.
+     */
+    public static final class SplitCursor implements CharSequence {
+        private final SplittingIterator iterator;
+        private boolean positioned;
+
+        private SplitCursor(SplittingIterator iterator) {
+            this.iterator = iterator;
+        }
+
+        /**
+         * Moves the cursor to the next piece.
+         *
+         * @return {@code false} if there are no more pieces
+         */
+        public boolean next() {
+            positioned = iterator.advance();
+            return positioned;
+        }
+
+        /**
+         * Returns the index of the first character of the current piece in
+         * the input.
+         *
+         * @throws IllegalStateException if the cursor is not on a piece
+         */
+        public int start() {
+            state(positioned, "the cursor is not positioned on a piece");
+            return iterator.pieceStart;
+        }
+
+        /**
+         * Returns the index after the last character of the current piece in
+         * the input.
+         *
+         * @throws IllegalStateException if the cursor is not on a piece
+         */
+        public int end() {
+            state(positioned, "the cursor is not positioned on a piece");
+            return iterator.pieceEnd;
+        }
+
+        /**
+         * Returns the sequence being split.
+         */
+        public CharSequence input() {
+            return iterator.toSplit;
+        }
+
+        /**
+         * Restarts the cursor on a new sequence, before its first piece.
+         *
+         * @return this cursor
+         */
+        public SplitCursor reset(CharSequence sequence) {
+            iterator.reset(notNull(sequence));
+            positioned = false;
+            return this;
+        }
+
+        /* @Override */
+        public int length() {
+            return end() - iterator.pieceStart;
+        }
+
+        /* @Override */
+        public char charAt(int index) {
+            return iterator.toSplit.charAt(start() + indexInBounds(index, length()));
+        }
+
+        /* @Override */
+        public CharSequence subSequence(int start, int end) {
+            indexInBounds(start, end, length());
+            int offset = iterator.pieceStart;
+            return iterator.toSplit.subSequence(offset + start, offset + end);
+        }
+
+        /**
+         * Returns the current piece as a new {@code String}.
+         */
+        @Override
+        public String toString() {
+            return iterator.toSplit.subSequence(start(), iterator.pieceEnd).toString();
+        }
+    }
+
+    /**
+     * An object that splits strings into maps as {@code Splitter} splits
+     * iterables and lists; the inverse of {@link Joiner.MapJoiner}. Like
+     * {@code Splitter}, it is thread-safe and immutable.
+     * <p>
+     * <p>
+     * Entries are parsed in place: each entry is split into its key and value
+     * through a view of the input, so the key and the value are the only
+     * strings created for an entry, and with {@link #cacheKeys()} or
+     * {@link #interning(StringPool)} repeated keys are not created at all.
+     * Keys and values are pooled as well when the key-value splitter, or the
+     * entry splitter, is {@linkplain Splitter#interning(StringPool) interning}.
+     */
+    public static final class MapSplitter {
+        private static final int KEY_CACHE_SIZE = 1 << 10;
+
+        private final Splitter entrySplitter;
+        private final Splitter entryKeyValueSplitter;
+        private final StringPool keyPool;
+        private final StringPool valuePool;
+
+        private MapSplitter(Splitter entrySplitter, Splitter entryKeyValueSplitter,
+                            StringPool keyPool, StringPool valuePool) {
+            this.entrySplitter = entrySplitter;
+            this.entryKeyValueSplitter = entryKeyValueSplitter;
+            this.keyPool = keyPool;
+            this.valuePool = valuePool;
+        }
+
+        /**
+         * Returns a map splitter that behaves equivalently to {@code this}
+         * one, but remembers recently parsed keys and returns the same
+         * {@code String} instance for a key that is parsed again, instead of
+         * creating a new one. Useful when many maps with the same keys are
+         * parsed and kept.
+         */
+        public MapSplitter cacheKeys() {
+            return new MapSplitter(entrySplitter, entryKeyValueSplitter,
+                    new StringPool(KEY_CACHE_SIZE), valuePool);
+        }
+
+        /**
+         * Returns a map splitter that behaves equivalently to {@code this}
+         * one, but returns the keys and the values from {@code pool}, as an
+         * {@linkplain Splitter#interning(StringPool) interning} splitter
+         * does.
+         */
+        public MapSplitter interning(StringPool pool) {
+            notNull(pool);
+            return new MapSplitter(entrySplitter, entryKeyValueSplitter, pool, pool);
+        }
+
+        /**
+         * Splits {@code sequence} into substrings, splits each substring into
+         * an entry, and returns a new map of the entries, in the order they
+         * appear in {@code sequence}. A key that appears more than once is
+         * mapped to its last value.
+         *
+         * @throws IllegalArgumentException if the specified sequence does not
+         *                                  split into valid map entries
+         */
+        public Map<String, String> split(CharSequence sequence) {
+            return split(sequence, new LinkedHashMap<String, String>());
+        }
+
+        /**
+         * Splits {@code sequence} as {@link #split(CharSequence)} does, but
+         * puts the entries into {@code map}, which may be pre-sized or reused
+         * by the caller.
+         *
+         * @return {@code map}
+         * @throws IllegalArgumentException if the specified sequence does not
+         *                                  split into valid map entries
+         */
+        public <M extends Map<String, String>> M split(CharSequence sequence, M map) {
+            notNull(sequence);
+            notNull(map);
+
+            SplittingIterator entries = entrySplitter.strategy.iterator(entrySplitter, sequence);
+            Window entry = new Window(sequence);
+            SplittingIterator keyValue = entryKeyValueSplitter.strategy.iterator(
+                    entryKeyValueSplitter, entry);
+            while (entries.advance()) {
+                int offset = entries.pieceStart;
+                entry.bound(offset, entries.pieceEnd);
+                keyValue.reset(entry);
+
+                if (!keyValue.advance()) {
+                    throw invalidEntry(entry);
+                }
+                String key = piece(keyPool, sequence, offset + keyValue.pieceStart, offset + keyValue.pieceEnd);
+                if (!keyValue.advance()) {
+                    throw invalidEntry(entry);
+                }
+                String value = piece(valuePool, sequence, offset + keyValue.pieceStart,
+                        offset + keyValue.pieceEnd);
+                if (keyValue.advance()) {
+                    throw invalidEntry(entry);
+                }
+
+                map.put(key, value);
+            }
+            return map;
+        }
+
+        private static IllegalArgumentException invalidEntry(CharSequence entry) {
+            return new IllegalArgumentException("Chunk [" + entry + "] is not a valid entry");
+        }
+    }
+
+    /**
+     * A movable view of a range of a sequence, so that a range can be split
+     * again without copying it.
+     */
+    private static final class Window implements CharSequence {
+        private final CharSequence sequence;
+        private int offset;
+        private int length;
+
+        Window(CharSequence sequence) {
+            this.sequence = sequence;
+        }
+
+        void bound(int start, int end) {
+            this.offset = start;
+            this.length = end - start;
+        }
+
+        /* @Override */
+        public int length() {
+            return length;
+        }
+
+        /* @Override */
+        public char charAt(int index) {
+            return sequence.charAt(offset + index);
+        }
+
+        /* @Override */
+        public CharSequence subSequence(int start, int end) {
+            indexInBounds(start, end, length);
+            return sequence.subSequence(offset + start, offset + end);
+        }
+
+        @Override
+        public String toString() {
+            return sequence.subSequence(offset, offset + length).toString();
+        }
+    }
+
+    /**
+     * Splits the characters read from {@code reader}, decoding incrementally
+     * through a bounded rolling buffer instead of loading the whole input.
+     * Separators of any kind, including multi-character
+     * {@linkplain #on(String) strings} and {@linkplain #on(Pattern) patterns},
+     * are recognized even when they straddle two reads. The pieces are exactly
+     * those {@link #split(CharSequence)} would return for the entire input.
+     * <p>
+     * <p>
+     * Memory use is bounded by the longest piece (plus its separator), not by
+     * the size of the input. The reader is consumed by the first iteration and
+     * closed once it is exhausted; an {@link IOException} is rethrown as an
+     * {@link IllegalStateException} by the iterator.
+     *
+     * @param reader the source of the characters to split
+     * @return a single-use iteration over the pieces read from {@code reader}
+     */
+    public Iterable<String> split(final Reader reader) {
+        notNull(reader);
+
+        return new Iterable<String>() {
+            private boolean iterated;
+
+            public Iterator<String> iterator() {
+                state(!iterated, "the reader has already been split");
+                iterated = true;
+                return new StreamingIterator(strategy.iterator(Splitter.this, ""), reader);
+            }
+        };
+    }
+
+    /**
+     * Splits the characters decoded with {@code charset} from the bytes read
+     * from {@code channel}, as {@link #split(Reader)} does.
+     *
+     * @param channel the source of the bytes to split
+     * @param charset the encoding of the bytes
+     * @return a single-use iteration over the pieces read from {@code channel}
+     */
+    public Iterable<String> split(ReadableByteChannel channel, Charset charset) {
+        return split(newReader(notNull(channel), notNull(charset).newDecoder(), -1));
+    }
+
+    /**
+     * Splits the UTF-8 encoded characters read from {@code channel}, as
+     * {@link #split(Reader)} does.
+     *
+     * @param channel the source of the bytes to split
+     * @return a single-use iteration over the pieces read from {@code channel}
+     */
+    public Iterable<String> split(ReadableByteChannel channel) {
+        return split(channel, UTF_8);
+    }
+
     private interface Strategy {
-        Iterator<String> iterator(Splitter splitter, CharSequence toSplit);
+        SplittingIterator iterator(Splitter splitter, CharSequence toSplit);
     }
 
     private abstract static class SplittingIterator extends
             AbstractIterator<String> {
-        final CharSequence toSplit;
-        final CharMatcher trimmer;
+        final CharMatcher configuredTrimmer;
         final boolean omitEmptyStrings;
+        final StringPool pool;
+        CharSequence toSplit;
+        CharMatcher trimmer;
 
         /**
          * Returns the first index in {@code toSplit} at or after {@code start}
@@ -374,19 +959,91 @@ public final class Splitter {
 
         int offset = 0;
 
+        /**
+         * Bounds of the last piece found by {@link #advance()}.
+         */
+        int pieceStart;
+        int pieceEnd;
+
+        /**
+         * Whether {@link #toSplit} holds the rest of the input; when it does
+         * not, {@link #advance()} stops with {@link #underflow} set instead of
+         * ending a piece at the end of {@link #toSplit}.
+         */
+        boolean complete = true;
+        boolean underflow;
+
         protected SplittingIterator(Splitter splitter, CharSequence toSplit) {
-            this.trimmer = splitter.trimmer;
+            this.configuredTrimmer = splitter.trimmer;
             this.omitEmptyStrings = splitter.omitEmptyStrings;
+            this.pool = splitter.pool;
             this.toSplit = toSplit;
+            this.trimmer = configuredTrimmer.forScan(toSplit.length());
+        }
+
+        /**
+         * Restarts splitting on a new sequence; strategies holding state bound
+         * to the sequence must override this.
+         */
+        void reset(CharSequence toSplit) {
+            this.toSplit = toSplit;
+            this.trimmer = configuredTrimmer.forScan(toSplit.length());
+            this.offset = 0;
+        }
+
+        /**
+         * Returns {@code true} if the separator last found by
+         * {@link #separatorStart} might have matched differently had
+         * {@link #toSplit} been longer. Only pattern separators can.
+         */
+        boolean separatorMayExtend() {
+            return false;
+        }
+
+        /**
+         * Returns {@code true} if a separator found by {@link #cutAt} from any
+         * index is one a split from the beginning of {@link #toSplit} would
+         * find as well, so that the sequence can be cut there and the parts
+         * split independently.
+         */
+        boolean resynchronizes() {
+            return false;
+        }
+
+        /**
+         * Returns the index of the first separator at or after
+         * {@code position} at which the sequence can be cut, or {@code -1} if
+         * there is none. Only invoked when {@link #resynchronizes()}.
+         */
+        int cutAt(int position) {
+            return separatorStart(position);
         }
 
         @Override
         protected String computeNext() {
+            if (advance()) {
+                return piece(pool, toSplit, pieceStart, pieceEnd);
+            }
+            return endOfData();
+        }
+
+        /**
+         * Finds the next piece and stores its bounds in {@link #pieceStart} and
+         * {@link #pieceEnd}.
+         *
+         * @return {@code false} if there are no more pieces
+         */
+        boolean advance() {
+            underflow = false;
             while (offset != -1) {
                 int start = offset;
                 int end;
 
                 int separatorPosition = separatorStart(offset);
+                if (!complete && (separatorPosition == -1 || separatorMayExtend())) {
+                    underflow = true;
+                    return false;
+                }
                 if (separatorPosition == -1) {
                     end = toSplit.length();
                     offset = -1;
@@ -406,9 +1063,71 @@ public final class Splitter {
                     continue;
                 }
 
-                return toSplit.subSequence(start, end).toString();
+                pieceStart = start;
+                pieceEnd = end;
+                return true;
             }
-            return endOfData();
+            return false;
+        }
+    }
+
+    /**
+     * Feeds a {@link SplittingIterator} with a window of characters read from
+     * a {@link Reader}. Whenever the iterator runs out of input in the middle
+     * of a piece, the consumed characters are dropped from the window and the
+     * piece is searched again once more characters have been read.
+     */
+    private static final class StreamingIterator extends AbstractIterator<String> {
+        private static final int BUFFER_SIZE = 8192;
+
+        private final SplittingIterator pieces;
+        private final Reader reader;
+        private char[] buffer = new char[BUFFER_SIZE];
+        private int filled;
+
+        StreamingIterator(SplittingIterator pieces, Reader reader) {
+            this.pieces = pieces;
+            this.reader = reader;
+            pieces.complete = false;
+        }
+
+        @Override
+        protected String computeNext() {
+            while (true) {
+                if (pieces.advance()) {
+                    return piece(pieces.pool, buffer, pieces.pieceStart, pieces.pieceEnd);
+                }
+                if (!pieces.underflow) {
+                    return endOfData();
+                }
+                fill();
+            }
+        }
+
+        private void fill() {
+            int consumed = pieces.offset;
+            filled -= consumed;
+            if (filled == buffer.length) {
+                // a single piece fills the buffer
+                char[] grown = new char[buffer.length * 2];
+                System.arraycopy(buffer, consumed, grown, 0, filled);
+                buffer = grown;
+            } else {
+                System.arraycopy(buffer, consumed, buffer, 0, filled);
+            }
+
+            try {
+                int read = reader.read(buffer, filled, buffer.length - filled);
+                if (read == -1) {
+                    reader.close();
+                    pieces.complete = true;
+                } else {
+                    filled += read;
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("reading the input to split failed", e);
+            }
+            pieces.reset(CharBuffer.wrap(buffer, 0, filled));
         }
     }
 
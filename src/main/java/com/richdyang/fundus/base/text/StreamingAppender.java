@@ -0,0 +1,195 @@
+package com.richdyang.fundus.base.text;
+
+import static java.lang.Math.min;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * An {@link Appendable} that collects characters into a fixed-size chunk and
+ * hands every full chunk to a {@link Writer}, or encodes it into an
+ * {@link OutputStream} or a {@link WritableByteChannel}. The output of any
+ * length thus goes through the same two buffers, which lets callers produce
+ * very large texts without holding them in memory.
+ * <p>
+ * <p>
+ * {@link #finish()} must be called once all the characters have been
+ * appended; the target is neither flushed nor closed. An appender is not
+ * thread-safe.
+ *
+ * @author <a href="mailto:richd.yang@gmail.com">Richard Yang</a>
+ * @since fundus
+ */
+abstract class StreamingAppender implements Appendable {
+    static final int CHUNK_SIZE = 8192;
+
+    final char[] chars = new char[CHUNK_SIZE];
+    int count;
+
+    /**
+     * Returns an appender writing to {@code writer}.
+     */
+    static StreamingAppender to(final Writer writer) {
+        return new StreamingAppender() {
+            @Override
+            void drain(boolean endOfInput) throws IOException {
+                writer.write(chars, 0, count);
+                count = 0;
+            }
+        };
+    }
+
+    /**
+     * Returns an appender writing to {@code out} the characters encoded with
+     * {@code charset}.
+     */
+    static StreamingAppender to(OutputStream out, Charset charset) {
+        return new Encoding(charset, out, null);
+    }
+
+    /**
+     * Returns an appender writing to {@code channel} the characters encoded
+     * with {@code charset}. The channel must be in blocking mode.
+     */
+    static StreamingAppender to(WritableByteChannel channel, Charset charset) {
+        return new Encoding(charset, null, channel);
+    }
+
+    /* @Override */
+    public Appendable append(CharSequence csq) throws IOException {
+        if (csq == null) {
+            csq = "null";
+        }
+        return append(csq, 0, csq.length());
+    }
+
+    /* @Override */
+    public Appendable append(CharSequence csq, int start, int end) throws IOException {
+        if (csq == null) {
+            csq = "null";
+        }
+        while (start < end) {
+            if (count == chars.length) {
+                drain(false);
+            }
+            int n = min(end - start, chars.length - count);
+            getChars(csq, start, start + n, chars, count);
+            count += n;
+            start += n;
+        }
+        return this;
+    }
+
+    /* @Override */
+    public Appendable append(char c) throws IOException {
+        if (count == chars.length) {
+            drain(false);
+        }
+        chars[count++] = c;
+        return this;
+    }
+
+    /**
+     * Writes out the characters appended since the last chunk.
+     */
+    void finish() throws IOException {
+        drain(true);
+    }
+
+    /**
+     * Writes out the buffered characters; a trailing character that cannot be
+     * written out alone may be kept, unless {@code endOfInput} is set.
+     */
+    abstract void drain(boolean endOfInput) throws IOException;
+
+    /**
+     * Copies the characters of {@code csq} from {@code start} to {@code end}
+     * into {@code dst} at {@code dstBegin}, in bulk for the common
+     * {@code CharSequence} implementations.
+     */
+    static void getChars(CharSequence csq, int start, int end, char[] dst, int dstBegin) {
+        if (csq instanceof String) {
+            ((String) csq).getChars(start, end, dst, dstBegin);
+        } else if (csq instanceof StringBuilder) {
+            ((StringBuilder) csq).getChars(start, end, dst, dstBegin);
+        } else if (csq instanceof StringBuffer) {
+            ((StringBuffer) csq).getChars(start, end, dst, dstBegin);
+        } else if (csq instanceof TextView) {
+            ((TextView) csq).getChars(start, end, dst, dstBegin);
+        } else if (csq instanceof ChunkedStringBuilder) {
+            ((ChunkedStringBuilder) csq).getChars(start, end, dst, dstBegin);
+        } else if (csq instanceof CharBuffer && ((CharBuffer) csq).hasArray()) {
+            CharBuffer buffer = (CharBuffer) csq;
+            System.arraycopy(buffer.array(), buffer.arrayOffset() + buffer.position() + start,
+                    dst, dstBegin, end - start);
+        } else {
+            for (int i = start; i < end; i++) {
+                dst[dstBegin++] = csq.charAt(i);
+            }
+        }
+    }
+
+    /**
+     * Encodes each chunk into a byte buffer large enough for a whole chunk,
+     * which is then written out with a single call.
+     */
+    private static final class Encoding extends StreamingAppender {
+        private final CharsetEncoder encoder;
+        private final CharBuffer input = CharBuffer.wrap(chars);
+        private final ByteBuffer bytes;
+        private final OutputStream out;
+        private final WritableByteChannel channel;
+
+        Encoding(Charset charset, OutputStream out, WritableByteChannel channel) {
+            this.encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.bytes = ByteBuffer.allocate((int) Math.ceil(encoder.maxBytesPerChar() * CHUNK_SIZE));
+            this.out = out;
+            this.channel = channel;
+        }
+
+        @Override
+        void drain(boolean endOfInput) throws IOException {
+            input.limit(count);
+            input.position(0);
+            CoderResult result;
+            while ((result = encoder.encode(input, bytes, endOfInput)).isOverflow()) {
+                write();
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (endOfInput) {
+                while (encoder.flush(bytes).isOverflow()) {
+                    write();
+                }
+            }
+            write();
+
+            // a high surrogate whose low surrogate is still to come
+            count = input.remaining();
+            System.arraycopy(chars, input.position(), chars, 0, count);
+        }
+
+        private void write() throws IOException {
+            bytes.flip();
+            if (out != null) {
+                out.write(bytes.array(), 0, bytes.limit());
+            } else {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }
+            bytes.clear();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.richdyang.fundus.base.text;
+
+import static com.richdyang.fundus.base.ArgumentAssert.indexInBounds;
+import static com.richdyang.fundus.base.ArgumentAssert.isTrue;
+import static com.richdyang.fundus.base.ArgumentAssert.notNull;
+
+import java.util.Arrays;
+
+/**
+ * A bounded pool of strings, which returns the same {@code String} instance
+ * for equal text, so that the many repeated tokens of parsed input, such as
+ * field names or status codes, are kept in memory once. For example,
+ * <p>
+ * <pre>
+ *   StringPool pool = new StringPool(4096);
+ *   Splitter.on(',').interning(pool).split(line)
+ * </pre>
+ * <p>
+ * returns pooled pieces. Unlike {@link String#intern()}, text can be pooled
+ * straight from a range of a {@code CharSequence}, a {@code char[]} or an
+ * ASCII {@code byte[]}: the hash code is computed over the range, and a new
+ * string is only created when the pool does not hold the text yet.
+ * <p>
+ * <p>
+ * The pool holds at most about its capacity of strings; once full, a newly
+ * pooled string replaces one that has not been asked for recently, chosen by
+ * the clock algorithm. The pool is split into segments with a lock of their
+ * own, selected by hash code, so that threads interning different text
+ * seldom contend. A pool is thread-safe.
+ *
+ * @author <a href="mailto:richd.yang@gmail.com">Richard Yang</a>
+ * @since fundus
+ */
+public final class StringPool {
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+
+    /**
+     * Creates a pool holding at most about {@code capacity} strings.
+     *
+     * @throws IllegalArgumentException if {@code capacity} is not positive
+     */
+    public StringPool(int capacity) {
+        isTrue(capacity > 0, "capacity must be positive: {0}", capacity);
+        int count = 1;
+        while (count < MAX_SEGMENTS && count * 4 <= capacity) {
+            count <<= 1;
+        }
+        this.segments = new Segment[count];
+        int segmentCapacity = (capacity + count - 1) / count;
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    /**
+     * Returns the pooled string equal to {@code string}, pooling
+     * {@code string} itself if there is none.
+     */
+    public String intern(String string) {
+        int hash = notNull(string).hashCode();
+        return segmentFor(hash).intern(string, 0, string.length(), hash);
+    }
+
+    /**
+     * Returns the pooled string equal to {@code sequence}.
+     */
+    public String intern(CharSequence sequence) {
+        return intern(sequence, 0, sequence.length());
+    }
+
+    /**
+     * Returns the pooled string equal to the characters of {@code sequence}
+     * from {@code start} to {@code end}.
+     *
+     * @throws IndexOutOfBoundsException if the range is out of bounds
+     */
+    public String intern(CharSequence sequence, int start, int end) {
+        indexInBounds(start, end, sequence.length());
+        if (sequence instanceof String && start == 0 && end == sequence.length()) {
+            return intern((String) sequence);
+        }
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + sequence.charAt(i);
+        }
+        return segmentFor(hash).intern(sequence, start, end, hash);
+    }
+
+    /**
+     * Returns the pooled string equal to the characters of {@code chars} from
+     * {@code start} to {@code end}.
+     *
+     * @throws IndexOutOfBoundsException if the range is out of bounds
+     */
+    public String intern(char[] chars, int start, int end) {
+        indexInBounds(start, end, chars.length);
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        return segmentFor(hash).intern(chars, start, end, hash);
+    }
+
+    /**
+     * Returns the pooled string equal to the bytes of {@code bytes} from
+     * {@code start} to {@code end}, decoded as ISO-8859-1, of which ASCII is
+     * a subset.
+     *
+     * @throws IndexOutOfBoundsException if the range is out of bounds
+     */
+    public String internAscii(byte[] bytes, int start, int end) {
+        indexInBounds(start, end, bytes.length);
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + (bytes[i] & 0xff);
+        }
+        return segmentFor(hash).intern(bytes, start, end, hash);
+    }
+
+    /**
+     * Returns the number of strings in this pool.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Removes all the strings from this pool.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    private Segment segmentFor(int hash) {
+        // the top bits of the scrambled hash, while the buckets use the low bits
+        return segments[((hash * 0x9e3779b9) >>> 28) & (segments.length - 1)];
+    }
+
+    /**
+     * Returns {@code true} if {@code string} holds the text of
+     * {@code source}, a {@code CharSequence}, {@code char[]} or
+     * {@code byte[]}, from {@code start} to {@code end}.
+     */
+    private static boolean regionEquals(String string, Object source, int start, int end) {
+        if (string.length() != end - start) {
+            return false;
+        }
+        if (source instanceof char[]) {
+            char[] chars = (char[]) source;
+            for (int i = start; i < end; i++) {
+                if (string.charAt(i - start) != chars[i]) {
+                    return false;
+                }
+            }
+        } else if (source instanceof byte[]) {
+            byte[] bytes = (byte[]) source;
+            for (int i = start; i < end; i++) {
+                if (string.charAt(i - start) != (bytes[i] & 0xff)) {
+                    return false;
+                }
+            }
+        } else {
+            CharSequence sequence = (CharSequence) source;
+            for (int i = start; i < end; i++) {
+                if (string.charAt(i - start) != sequence.charAt(i)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static String newString(Object source, int start, int end) {
+        if (source instanceof char[]) {
+            return new String((char[]) source, start, end - start);
+        }
+        if (source instanceof byte[]) {
+            byte[] bytes = (byte[]) source;
+            char[] chars = new char[end - start];
+            for (int i = start; i < end; i++) {
+                chars[i - start] = (char) (bytes[i] & 0xff);
+            }
+            return new String(chars);
+        }
+        if (source instanceof String && start == 0 && end == ((String) source).length()) {
+            return (String) source;
+        }
+        return ((CharSequence) source).subSequence(start, end).toString();
+    }
+
+    /**
+     * A chained hash table of strings, with a clock over its entries: a hit
+     * marks an entry as referenced, and the hand looking for an entry to
+     * replace clears the marks it passes until it finds an unmarked entry.
+     */
+    private static final class Segment {
+        private final Node[] clock;
+        private final Node[] buckets;
+        private int size;
+        private int hand;
+
+        Segment(int capacity) {
+            this.clock = new Node[capacity];
+            int buckets = 1;
+            while (buckets < capacity) {
+                buckets <<= 1;
+            }
+            this.buckets = new Node[buckets];
+        }
+
+        synchronized String intern(Object source, int start, int end, int hash) {
+            int bucket = (hash ^ (hash >>> 16)) & (buckets.length - 1);
+            for (Node node = buckets[bucket]; node != null; node = node.next) {
+                if (node.hash == hash && regionEquals(node.value, source, start, end)) {
+                    node.referenced = true;
+                    return node.value;
+                }
+            }
+
+            int slot;
+            if (size < clock.length) {
+                slot = size++;
+            } else {
+                while (clock[hand].referenced) {
+                    clock[hand].referenced = false;
+                    hand = (hand + 1) % clock.length;
+                }
+                slot = hand;
+                hand = (hand + 1) % clock.length;
+                unlink(clock[slot]);
+            }
+            Node node = new Node(newString(source, start, end), hash, buckets[bucket]);
+            buckets[bucket] = node;
+            clock[slot] = node;
+            return node.value;
+        }
+
+        private void unlink(Node victim) {
+            int bucket = (victim.hash ^ (victim.hash >>> 16)) & (buckets.length - 1);
+            if (buckets[bucket] == victim) {
+                buckets[bucket] = victim.next;
+                return;
+            }
+            for (Node node = buckets[bucket]; node != null; node = node.next) {
+                if (node.next == victim) {
+                    node.next = victim.next;
+                    return;
+                }
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized void clear() {
+            Arrays.fill(clock, null);
+            Arrays.fill(buckets, null);
+            size = 0;
+            hand = 0;
+        }
+    }
+
+    private static final class Node {
+        final String value;
+        final int hash;
+        Node next;
+        boolean referenced;
+
+        Node(String value, int hash, Node next) {
+            this.value = value;
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.richdyang.fundus.base.text;
+
+import static com.richdyang.fundus.base.ArgumentAssert.isTrue;
+import static java.lang.Math.max;
+
+/**
+ * Finds occurrences of a fixed, nonempty string in character sequences. The
+ * preprocessing is done once, when the searcher is created, so a searcher
+ * should be kept and reused for the same pattern.
+ * <p>
+ * <p>
+ * Short patterns are searched with the Boyer-Moore-Horspool algorithm, which
+ * skips ahead by up to the pattern length on a mismatch. Longer patterns,
+ * where Horspool's quadratic worst case starts to hurt, are searched with the
+ * Crochemore-Perrin two-way algorithm, which is linear in the text length and
+ * needs only constant extra space.
+ *
+ * @author <a href="mailto:richd.yang@gmail.com">Richard Yang</a>
+ * @since fundus
+ */
+abstract class StringSearcher {
+
+    /**
+     * Patterns longer than this are searched with the two-way algorithm.
+     */
+    private static final int HORSPOOL_MAX_LENGTH = 16;
+
+    final String pattern;
+
+    StringSearcher(String pattern) {
+        this.pattern = pattern;
+    }
+
+    /**
+     * Returns a searcher for {@code pattern}.
+     *
+     * @throws IllegalArgumentException if {@code pattern} is empty
+     */
+    static StringSearcher compile(String pattern) {
+        isTrue(pattern.length() != 0, "The pattern may not be the empty string.");
+        if (pattern.length() <= HORSPOOL_MAX_LENGTH) {
+            return new Horspool(pattern);
+        }
+        return new TwoWay(pattern);
+    }
+
+    /**
+     * Returns the index of the first occurrence of the pattern in
+     * {@code text} at or after {@code from}, or {@code -1} if there is none.
+     */
+    abstract int indexIn(CharSequence text, int from);
+
+    /**
+     * Boyer-Moore-Horspool. The bad-character table is indexed by the low
+     * eight bits of a character; characters sharing a slot share the smallest
+     * of their shifts, which keeps the skips safe.
+     */
+    private static final class Horspool extends StringSearcher {
+        private final char[] chars;
+        private final int[] shifts = new int[256];
+
+        Horspool(String pattern) {
+            super(pattern);
+            this.chars = pattern.toCharArray();
+            int last = chars.length - 1;
+            for (int i = 0; i < shifts.length; i++) {
+                shifts[i] = chars.length;
+            }
+            for (int i = 0; i < last; i++) {
+                shifts[chars[i] & 0xff] = last - i;
+            }
+        }
+
+        @Override
+        int indexIn(CharSequence text, int from) {
+            int last = chars.length - 1;
+            char lastChar = chars[last];
+            for (int j = from, end = text.length() - chars.length; j <= end; ) {
+                char c = text.charAt(j + last);
+                if (c == lastChar && regionMatches(text, j, last)) {
+                    return j;
+                }
+                j += shifts[c & 0xff];
+            }
+            return -1;
+        }
+
+        private boolean regionMatches(CharSequence text, int offset, int length) {
+            for (int i = 0; i < length; i++) {
+                if (text.charAt(offset + i) != chars[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Crochemore-Perrin two-way string matching, after the presentation in
+     * Charras and Lecroq, "Handbook of Exact String Matching Algorithms". The
+     * pattern is split at a critical factorization {@code x = u v}; {@code v}
+     * is matched left to right, then {@code u} right to left.
+     */
+    private static final class TwoWay extends StringSearcher {
+        private final char[] chars;
+        private final int critical; // index of the last character of u
+        private final int period;
+        private final boolean periodic;
+
+        TwoWay(String pattern) {
+            super(pattern);
+            this.chars = pattern.toCharArray();
+            int[] period1 = new int[1];
+            int[] period2 = new int[1];
+            int suffix1 = maximalSuffix(chars, period1, false);
+            int suffix2 = maximalSuffix(chars, period2, true);
+            int critical;
+            int period;
+            if (suffix1 > suffix2) {
+                critical = suffix1;
+                period = period1[0];
+            } else {
+                critical = suffix2;
+                period = period2[0];
+            }
+            this.critical = critical;
+            this.periodic = period + critical + 1 <= chars.length
+                    && regionMatches(chars, 0, period, critical + 1);
+            this.period = periodic ? period
+                    : max(critical + 1, chars.length - critical - 1) + 1;
+        }
+
+        @Override
+        int indexIn(CharSequence text, int from) {
+            int length = chars.length;
+            int end = text.length() - length;
+            int j = from;
+            if (periodic) {
+                int memory = -1;
+                while (j <= end) {
+                    int i = max(critical, memory) + 1;
+                    while (i < length && chars[i] == text.charAt(i + j)) {
+                        i++;
+                    }
+                    if (i >= length) {
+                        i = critical;
+                        while (i > memory && chars[i] == text.charAt(i + j)) {
+                            i--;
+                        }
+                        if (i <= memory) {
+                            return j;
+                        }
+                        j += period;
+                        memory = length - period - 1;
+                    } else {
+                        j += i - critical;
+                        memory = -1;
+                    }
+                }
+            } else {
+                while (j <= end) {
+                    int i = critical + 1;
+                    while (i < length && chars[i] == text.charAt(i + j)) {
+                        i++;
+                    }
+                    if (i >= length) {
+                        i = critical;
+                        while (i >= 0 && chars[i] == text.charAt(i + j)) {
+                            i--;
+                        }
+                        if (i < 0) {
+                            return j;
+                        }
+                        j += period;
+                    } else {
+                        j += i - critical;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Computes the maximal suffix of {@code x} for the natural character
+         * order, or for the reversed order if {@code reversed} is set. Returns
+         * the index before the suffix and stores its period in
+         * {@code period[0]}.
+         */
+        private static int maximalSuffix(char[] x, int[] period, boolean reversed) {
+            int suffix = -1;
+            int j = 0;
+            int k = 1;
+            int p = 1;
+            while (j + k < x.length) {
+                char a = x[j + k];
+                char b = x[suffix + k];
+                if (reversed ? a > b : a < b) {
+                    j += k;
+                    k = 1;
+                    p = j - suffix;
+                } else if (a == b) {
+                    if (k != p) {
+                        k++;
+                    } else {
+                        j += p;
+                        k = 1;
+                    }
+                } else {
+                    suffix = j;
+                    j = suffix + 1;
+                    k = p = 1;
+                }
+            }
+            period[0] = p;
+            return suffix;
+        }
+
+        private static boolean regionMatches(char[] x, int offset1, int offset2, int length) {
+            for (int i = 0; i < length; i++) {
+                if (x[offset1 + i] != x[offset2 + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
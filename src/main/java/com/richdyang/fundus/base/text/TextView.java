@@ -0,0 +1,384 @@
+package com.richdyang.fundus.base.text;
+
+import static com.richdyang.fundus.base.ArgumentAssert.indexInBounds;
+import static com.richdyang.fundus.base.ArgumentAssert.isTrue;
+import static com.richdyang.fundus.base.ArgumentAssert.notNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * A lazy view of text derived from other character sequences, such as
+ * {@code padStart("7", 3, '0')}: nothing is copied when the view is created,
+ * its characters being computed from the sources on demand. For example,
+ * <p>
+ * <pre>
+ *   TextView.concat(TextView.padEnd(name, 20, ' '), TextView.trim(value)).appendTo(writer);
+ * </pre>
+ * <p>
+ * writes the formatted line without building any intermediate string. A view
+ * is copied out in bulk by {@link #getChars}, {@link #appendTo(Appendable)}
+ * and {@link #toString()}, a run of characters at a time rather than one
+ * {@link #charAt} call per character.
+ * <p>
+ * <p>
+ * A view reads through to its sources, which must not change while it is in
+ * use; the positions of a trimmed view, in particular, are found when it is
+ * created. A view of immutable sources is immutable and thread-safe.
+ *
+ * @author <a href="mailto:richd.yang@gmail.com">Richard Yang</a>
+ * @see Texts
+ * @since fundus
+ */
+public abstract class TextView implements CharSequence {
+    private static final int CHUNK_SIZE = 1 << 10;
+
+    TextView() {
+    }
+
+    /**
+     * Returns a view of {@code sequence} prepended with as many copies of
+     * {@code padChar} as are necessary to reach {@code minLength}.
+     *
+     * @see Texts#padStart(String, int, char)
+     */
+    public static TextView padStart(CharSequence sequence, int minLength, char padChar) {
+        return new Padded(notNull(sequence), Math.max(minLength - sequence.length(), 0), padChar, true);
+    }
+
+    /**
+     * Returns a view of {@code sequence} appended with as many copies of
+     * {@code padChar} as are necessary to reach {@code minLength}.
+     *
+     * @see Texts#padEnd(String, int, char)
+     */
+    public static TextView padEnd(CharSequence sequence, int minLength, char padChar) {
+        return new Padded(notNull(sequence), Math.max(minLength - sequence.length(), 0), padChar, false);
+    }
+
+    /**
+     * Returns a view of {@code count} copies of {@code sequence}.
+     *
+     * @throws IllegalArgumentException if {@code count} is negative, or the
+     *                                  view would be too long
+     * @see Texts#repeat(String, int)
+     */
+    public static TextView repeat(CharSequence sequence, int count) {
+        notNull(sequence);
+        isTrue(count >= 0, "invalid count: {0}", count);
+        isTrue((long) sequence.length() * count <= Integer.MAX_VALUE, "The result would be too long.");
+        return new Repeated(sequence, count);
+    }
+
+    /**
+     * Returns a view of {@code sequence} without its leading and trailing
+     * whitespace, as defined by {@link Character#isWhitespace(char)}.
+     */
+    public static TextView trim(CharSequence sequence) {
+        int end = notNull(sequence).length();
+        int start = 0;
+        while (start < end && Character.isWhitespace(sequence.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(sequence.charAt(end - 1))) {
+            end--;
+        }
+        return new Slice(sequence, start, end);
+    }
+
+    /**
+     * Returns a view of {@code sequence} without its leading and trailing
+     * characters matched by {@code matcher}.
+     *
+     * @see CharMatcher#trimFrom(CharSequence)
+     */
+    public static TextView trim(CharSequence sequence, CharMatcher matcher) {
+        notNull(matcher);
+        int end = notNull(sequence).length();
+        int start = 0;
+        while (start < end && matcher.matches(sequence.charAt(start))) {
+            start++;
+        }
+        while (end > start && matcher.matches(sequence.charAt(end - 1))) {
+            end--;
+        }
+        return new Slice(sequence, start, end);
+    }
+
+    /**
+     * Returns a view of {@code parts} one after the other.
+     *
+     * @throws IllegalArgumentException if the view would be too long
+     */
+    public static TextView concat(CharSequence... parts) {
+        CharSequence[] copy = notNull(parts).clone();
+        int[] ends = new int[copy.length];
+        long length = 0;
+        for (int i = 0; i < copy.length; i++) {
+            length += notNull(copy[i]).length();
+            isTrue(length <= Integer.MAX_VALUE, "The result would be too long.");
+            ends[i] = (int) length;
+        }
+        return new Concatenated(copy, ends);
+    }
+
+    public abstract int length();
+
+    public abstract char charAt(int index);
+
+    /**
+     * Returns a view of the characters of this view from {@code start} to
+     * {@code end}.
+     */
+    public TextView subSequence(int start, int end) {
+        indexInBounds(start, end, length());
+        return new Slice(this, start, end);
+    }
+
+    /**
+     * Copies the characters of this view from {@code start} to {@code end}
+     * into {@code dst}, starting at {@code dstBegin}.
+     *
+     * @throws IndexOutOfBoundsException if the range is out of the bounds of
+     *                                   this view or of {@code dst}
+     */
+    public void getChars(int start, int end, char[] dst, int dstBegin) {
+        indexInBounds(start, end, length());
+        indexInBounds(dstBegin, dstBegin + end - start, dst.length);
+        copy(start, end, dst, dstBegin);
+    }
+
+    /**
+     * Copies the characters from {@code start} to {@code end}, which are
+     * within bounds, into {@code dst}.
+     */
+    abstract void copy(int start, int end, char[] dst, int dstBegin);
+
+    /**
+     * Appends the characters of this view to {@code appendable}, in chunks
+     * copied out by {@link #getChars}.
+     */
+    public <A extends Appendable> A appendTo(A appendable) throws IOException {
+        notNull(appendable);
+        int length = length();
+        if (appendable instanceof StringBuilder) {
+            ((StringBuilder) appendable).ensureCapacity(((StringBuilder) appendable).length() + length);
+        }
+        char[] chunk = new char[Math.min(length, CHUNK_SIZE)];
+        for (int start = 0; start < length; start += chunk.length) {
+            int count = Math.min(chunk.length, length - start);
+            copy(start, start + count, chunk, 0);
+            if (appendable instanceof StringBuilder) {
+                ((StringBuilder) appendable).append(chunk, 0, count);
+            } else if (appendable instanceof Writer) {
+                ((Writer) appendable).write(chunk, 0, count);
+            } else {
+                appendable.append(CharBuffer.wrap(chunk, 0, count));
+            }
+        }
+        return appendable;
+    }
+
+    /**
+     * Appends the characters of this view to {@code builder}. Identical to
+     * {@link #appendTo(Appendable)}, except that it does not throw
+     * {@link IOException}.
+     */
+    public StringBuilder appendTo(StringBuilder builder) {
+        try {
+            appendTo((Appendable) builder);
+        } catch (IOException impossible) {
+            throw new AssertionError(impossible);
+        }
+        return builder;
+    }
+
+    /**
+     * Returns the characters of this view as a string, copied out with a
+     * single {@link #getChars} call.
+     */
+    @Override
+    public String toString() {
+        char[] chars = new char[length()];
+        copy(0, chars.length, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * Copies the characters of {@code source} from {@code start} to
+     * {@code end} into {@code dst}, in bulk when it can.
+     */
+    private static void copyChars(CharSequence source, int start, int end, char[] dst, int dstBegin) {
+        if (source instanceof TextView) {
+            ((TextView) source).copy(start, end, dst, dstBegin);
+        } else {
+            StreamingAppender.getChars(source, start, end, dst, dstBegin);
+        }
+    }
+
+    private static final class Padded extends TextView {
+        private final CharSequence source;
+        private final int padding;
+        private final char padChar;
+        private final boolean atStart;
+
+        Padded(CharSequence source, int padding, char padChar, boolean atStart) {
+            this.source = source;
+            this.padding = padding;
+            this.padChar = padChar;
+            this.atStart = atStart;
+        }
+
+        @Override
+        public int length() {
+            return padding + source.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            indexInBounds(index, length());
+            if (atStart) {
+                return index < padding ? padChar : source.charAt(index - padding);
+            }
+            return index < source.length() ? source.charAt(index) : padChar;
+        }
+
+        @Override
+        void copy(int start, int end, char[] dst, int dstBegin) {
+            // the source starts at offset, the padding runs from padStart to padEnd
+            int offset = atStart ? padding : 0;
+            int padStart = atStart ? 0 : source.length();
+            int padEnd = padStart + padding;
+            for (int i = start; i < end; ) {
+                if (i >= padStart && i < padEnd) {
+                    int to = Math.min(end, padEnd);
+                    Arrays.fill(dst, dstBegin + i - start, dstBegin + to - start, padChar);
+                    i = to;
+                } else {
+                    int to = i < padStart ? Math.min(end, padStart) : end;
+                    copyChars(source, i - offset, to - offset, dst, dstBegin + i - start);
+                    i = to;
+                }
+            }
+        }
+    }
+
+    private static final class Repeated extends TextView {
+        private final CharSequence source;
+        private final int count;
+
+        Repeated(CharSequence source, int count) {
+            this.source = source;
+            this.count = count;
+        }
+
+        @Override
+        public int length() {
+            return source.length() * count;
+        }
+
+        @Override
+        public char charAt(int index) {
+            indexInBounds(index, length());
+            return source.charAt(index % source.length());
+        }
+
+        @Override
+        void copy(int start, int end, char[] dst, int dstBegin) {
+            int period = source.length();
+            for (int i = start; i < end; ) {
+                int from = i % period;
+                int to = Math.min(period, from + end - i);
+                copyChars(source, from, to, dst, dstBegin + i - start);
+                i += to - from;
+            }
+        }
+    }
+
+    private static final class Slice extends TextView {
+        private final CharSequence source;
+        private final int start;
+        private final int end;
+
+        Slice(CharSequence source, int start, int end) {
+            this.source = source;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            indexInBounds(index, length());
+            return source.charAt(start + index);
+        }
+
+        @Override
+        public TextView subSequence(int start, int end) {
+            indexInBounds(start, end, length());
+            return new Slice(source, this.start + start, this.start + end);
+        }
+
+        @Override
+        void copy(int start, int end, char[] dst, int dstBegin) {
+            copyChars(source, this.start + start, this.start + end, dst, dstBegin);
+        }
+    }
+
+    private static final class Concatenated extends TextView {
+        private final CharSequence[] parts;
+        private final int[] ends;
+
+        Concatenated(CharSequence[] parts, int[] ends) {
+            this.parts = parts;
+            this.ends = ends;
+        }
+
+        @Override
+        public int length() {
+            return ends.length == 0 ? 0 : ends[ends.length - 1];
+        }
+
+        @Override
+        public char charAt(int index) {
+            indexInBounds(index, length());
+            int part = partAt(index);
+            return parts[part].charAt(index - startOf(part));
+        }
+
+        @Override
+        void copy(int start, int end, char[] dst, int dstBegin) {
+            for (int part = partAt(start), i = start; i < end; part++) {
+                int partStart = startOf(part);
+                int to = Math.min(end, ends[part]);
+                copyChars(parts[part], i - partStart, to - partStart, dst, dstBegin + i - start);
+                i = to;
+            }
+        }
+
+        /**
+         * Returns the first part ending after {@code index}.
+         */
+        private int partAt(int index) {
+            int part = Arrays.binarySearch(ends, index);
+            if (part < 0) {
+                return -part - 1;
+            }
+            // skip the empty parts ending at the same index
+            while (ends[part] == index && part < ends.length - 1) {
+                part++;
+            }
+            return part;
+        }
+
+        private int startOf(int part) {
+            return part == 0 ? 0 : ends[part - 1];
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.richdyang.fundus.base.text;
 
+import static com.richdyang.fundus.base.ArgumentAssert.indexInBounds;
 import static com.richdyang.fundus.base.ArgumentAssert.isTrue;
 import static com.richdyang.fundus.base.text.Texts.EscapeHelper.INSTANCE;
 import static java.lang.Character.*;
@@ -76,6 +77,7 @@ public final class Texts {
      * @param padChar   the character to insert at the beginning of the result until
      *                  the minimum length is reached
      * @return the padded string
+     * @see TextView#padStart(CharSequence, int, char)
      */
     public static String padStart(String string, int minLength, char padChar) {
         if (string.length() >= minLength) {
@@ -109,6 +111,7 @@ public final class Texts {
      * @param padChar   the character to append to the end of the result until the
      *                  minimum length is reached
      * @return the padded string
+     * @see TextView#padEnd(CharSequence, int, char)
      */
     public static String padEnd(String string, int minLength, char padChar) {
         if (string.length() >= minLength) {
@@ -132,6 +135,7 @@ public final class Texts {
      * @return a string containing {@code string} repeated {@code count} times
      * (the empty string if {@code count} is zero)
      * @throws IllegalArgumentException if {@code count} is negative
+     * @see TextView#repeat(CharSequence, int)
      */
     public static String repeat(String string, int count) {
         isTrue(count >= 0, "invalid count: %s", count);
@@ -348,60 +352,141 @@ public final class Texts {
          * and inbetween characters.
          *
          * @param str the String to check
-         * @return the trimmed String (never be null)
+         * @return the trimmed String (never be null), which is {@code str}
+         * itself if it has no whitespace
          * @see Character#isWhitespace
          */
         public static String trimAllWhitespace(String str) {
             if (!hasLength(str)) {
                 return str;
             }
-            StringBuilder sb = new StringBuilder(str);
-            int index = 0;
-            while (sb.length() > index) {
-                if (isWhitespace(sb.charAt(index))) {
-                    sb.deleteCharAt(index);
-                } else {
-                    index++;
+            int length = str.length();
+            int first = 0;
+            while (first < length && !isWhitespace(str.charAt(first))) {
+                first++;
+            }
+            if (first == length) {
+                return str;
+            }
+            char[] chars = str.toCharArray();
+            return new String(chars, 0, removeWhitespace(chars, first, length));
+        }
+
+        /**
+         * Trim <i>all</i> whitespace from the given range of characters:
+         * leading, trailing, and inbetween characters.
+         *
+         * @param chars the characters to check
+         * @param start the start of the range, inclusive
+         * @param end   the end of the range, exclusive
+         * @return the trimmed String
+         * @see Character#isWhitespace
+         */
+        public static String trimAllWhitespace(char[] chars, int start, int end) {
+            indexInBounds(start, end, chars.length);
+            int length = 0;
+            for (int i = start; i < end; i++) {
+                if (!isWhitespace(chars[i])) {
+                    length++;
                 }
             }
-            return sb.toString();
+            if (length == end - start) {
+                return new String(chars, start, length);
+            }
+            char[] trimmed = new char[length];
+            for (int i = start, j = 0; i < end; i++) {
+                if (!isWhitespace(chars[i])) {
+                    trimmed[j++] = chars[i];
+                }
+            }
+            return new String(trimmed);
+        }
+
+        /**
+         * Moves the characters of {@code chars} from {@code first}, which is
+         * whitespace, to {@code end} that are not whitespace to the front,
+         * and returns the new end.
+         */
+        private static int removeWhitespace(char[] chars, int first, int end) {
+            int j = first;
+            for (int i = first + 1; i < end; i++) {
+                if (!isWhitespace(chars[i])) {
+                    chars[j++] = chars[i];
+                }
+            }
+            return j;
         }
 
         /**
          * Trim leading whitespace from the given String.
          *
          * @param str the String to check
-         * @return the trimmed String
+         * @return the trimmed String, which is {@code str} itself if it has no
+         * leading whitespace
          * @see Character#isWhitespace
          */
         public static String trimLeadingWhitespace(String str) {
             if (!hasLength(str)) {
                 return str;
             }
-            StringBuilder sb = new StringBuilder(str);
-            while (sb.length() > 0 && isWhitespace(sb.charAt(0))) {
-                sb.deleteCharAt(0);
+            int start = 0;
+            while (start < str.length() && isWhitespace(str.charAt(start))) {
+                start++;
             }
-            return sb.toString();
+            return str.substring(start);
+        }
+
+        /**
+         * Trim leading whitespace from the given range of characters.
+         *
+         * @param chars the characters to check
+         * @param start the start of the range, inclusive
+         * @param end   the end of the range, exclusive
+         * @return the trimmed String
+         * @see Character#isWhitespace
+         */
+        public static String trimLeadingWhitespace(char[] chars, int start, int end) {
+            indexInBounds(start, end, chars.length);
+            while (start < end && isWhitespace(chars[start])) {
+                start++;
+            }
+            return new String(chars, start, end - start);
         }
 
         /**
          * Trim trailing whitespace from the given String.
          *
          * @param str the String to check
-         * @return the trimmed String
+         * @return the trimmed String, which is {@code str} itself if it has no
+         * trailing whitespace
          * @see Character#isWhitespace
          */
         public static String trimTrailingWhitespace(String str) {
             if (!hasLength(str)) {
                 return str;
             }
-            StringBuilder sb = new StringBuilder(str);
-            while (sb.length() > 0
-                    && isWhitespace(sb.charAt(sb.length() - 1))) {
-                sb.deleteCharAt(sb.length() - 1);
+            int end = str.length();
+            while (end > 0 && isWhitespace(str.charAt(end - 1))) {
+                end--;
             }
-            return sb.toString();
+            return str.substring(0, end);
+        }
+
+        /**
+         * Trim trailing whitespace from the given range of characters.
+         *
+         * @param chars the characters to check
+         * @param start the start of the range, inclusive
+         * @param end   the end of the range, exclusive
+         * @return the trimmed String
+         * @see Character#isWhitespace
+         */
+        public static String trimTrailingWhitespace(char[] chars, int start, int end) {
+            indexInBounds(start, end, chars.length);
+            while (end > start && isWhitespace(chars[end - 1])) {
+                end--;
+            }
+            return new String(chars, start, end - start);
         }
 
         /**
@@ -410,18 +495,38 @@ public final class Texts {
          *
          * @param str              the String to check
          * @param leadingCharacter the leading character to be trimmed
-         * @return the trimmed String
+         * @return the trimmed String, which is {@code str} itself if it does
+         * not start with the character
          */
         public static String trimLeadingCharacter(String str,
                                                   char leadingCharacter) {
             if (!hasLength(str)) {
                 return str;
             }
-            StringBuilder sb = new StringBuilder(str);
-            while (sb.length() > 0 && sb.charAt(0) == leadingCharacter) {
-                sb.deleteCharAt(0);
+            int start = 0;
+            while (start < str.length() && str.charAt(start) == leadingCharacter) {
+                start++;
             }
-            return sb.toString();
+            return str.substring(start);
+        }
+
+        /**
+         * Trim all occurences of the supplied leading character from the given
+         * range of characters.
+         *
+         * @param chars            the characters to check
+         * @param start            the start of the range, inclusive
+         * @param end              the end of the range, exclusive
+         * @param leadingCharacter the leading character to be trimmed
+         * @return the trimmed String
+         */
+        public static String trimLeadingCharacter(char[] chars, int start, int end,
+                                                  char leadingCharacter) {
+            indexInBounds(start, end, chars.length);
+            while (start < end && chars[start] == leadingCharacter) {
+                start++;
+            }
+            return new String(chars, start, end - start);
         }
 
         /**
@@ -430,19 +535,38 @@ public final class Texts {
          *
          * @param str               the String to check
          * @param trailingCharacter the trailing character to be trimmed
-         * @return the trimmed String
+         * @return the trimmed String, which is {@code str} itself if it does
+         * not end with the character
          */
         public static String trimTrailingCharacter(String str,
                                                    char trailingCharacter) {
             if (!hasLength(str)) {
                 return str;
             }
-            StringBuilder sb = new StringBuilder(str);
-            while (sb.length() > 0
-                    && sb.charAt(sb.length() - 1) == trailingCharacter) {
-                sb.deleteCharAt(sb.length() - 1);
+            int end = str.length();
+            while (end > 0 && str.charAt(end - 1) == trailingCharacter) {
+                end--;
             }
-            return sb.toString();
+            return str.substring(0, end);
+        }
+
+        /**
+         * Trim all occurences of the supplied trailing character from the given
+         * range of characters.
+         *
+         * @param chars             the characters to check
+         * @param start             the start of the range, inclusive
+         * @param end               the end of the range, exclusive
+         * @param trailingCharacter the trailing character to be trimmed
+         * @return the trimmed String
+         */
+        public static String trimTrailingCharacter(char[] chars, int start, int end,
+                                                   char trailingCharacter) {
+            indexInBounds(start, end, chars.length);
+            while (end > start && chars[end - 1] == trailingCharacter) {
+                end--;
+            }
+            return new String(chars, start, end - start);
         }
 
         /**
@@ -576,44 +700,47 @@ public final class Texts {
         }
 
         /**
-         * Unimplementation
+         * Escapes a value for a standard SQL string literal.
          *
-         * @param sqlParamter
-         * @return
+         * @param sqlParamter the value, may be null
+         * @return the escaped value, or null
+         * @see Escaper#SQL
          */
         public static String escapeSQL(String sqlParamter) {
-            // TODO
-            return null;
+            return sqlParamter == null ? null : Escaper.SQL.escape(sqlParamter);
         }
 
         /**
-         * Unimplementation
+         * Percent-encodes a URL component, such as a query parameter.
          *
-         * @param url
-         * @return
+         * @param url the component, may be null
+         * @return the encoded component, or null
+         * @see Escaper#URL
          */
         public static String escapeURL(String url) {
-            return null;
+            return url == null ? null : Escaper.URL.escape(url);
         }
 
         /**
-         * Unimplementation
+         * Escapes text for HTML content and attribute values.
          *
-         * @param html
-         * @return
+         * @param html the text, may be null
+         * @return the escaped text, or null
+         * @see Escaper#HTML
          */
         public static String escapeHTML(String html) {
-            return null;
+            return html == null ? null : Escaper.HTML.escape(html);
         }
 
         /**
-         * Unimplementation
+         * Escapes text for a JavaScript string.
          *
-         * @param javascript
-         * @return
+         * @param javascript the text, may be null
+         * @return the escaped text, or null
+         * @see Escaper#JAVASCRIPT
          */
         public static String escapeJavaScript(String javascript) {
-            return null;
+            return javascript == null ? null : Escaper.JAVASCRIPT.escape(javascript);
         }
 
         /**
@@ -621,14 +748,10 @@ public final class Texts {
          *
          * @param str 字符串
          * @return 返回转义后的字符串
+         * @see Escaper#JSON
          */
         public static CharSequence escape(CharSequence str) {
-            StringBuffer buff = new StringBuffer();
-            for (int i = 0; i < str.length(); i++) {
-                char c = str.charAt(i);
-                buff.append(escape(c));
-            }
-            return buff;
+            return Escaper.JSON.escape(str);
         }
 
         /**
@@ -636,39 +759,10 @@ public final class Texts {
          *
          * @param c 字符
          * @return 返回转义后的字符串
+         * @see Escaper#JSON
          */
         public static CharSequence escape(char c) {
-            StringBuffer buff = new StringBuffer();
-            switch (c) {
-                case '/':
-                    buff.append("\\/");
-                    break;
-                case '"':
-                    buff.append("\\\"");
-                    break;
-                case '\\':
-                    buff.append("\\\\");
-                    break;
-                case '\b':
-                    buff.append("\\b");
-                    break;
-                case '\r':
-                    buff.append("\\r");
-                    break;
-                case '\n':
-                    buff.append("\\n");
-                    break;
-                case '\t':
-                    buff.append("\\t");
-                    break;
-                case '\f':
-                    buff.append("\\f");
-                    break;
-                default:
-                    buff.append(c);
-                    break;
-            }
-            return buff;
+            return Escaper.JSON.escape(String.valueOf(c));
         }
     }
 }
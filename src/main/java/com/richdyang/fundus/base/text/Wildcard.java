@@ -0,0 +1,112 @@
+package com.richdyang.fundus.base.text;
+
+import static com.richdyang.fundus.base.ArgumentAssert.notNull;
+
+/**
+ * A compiled wildcard expression, in which {@code *} stands for any sequence
+ * of characters, possibly empty, and {@code ?} for any one character; all
+ * other characters stand for themselves. For example,
+ * {@code Wildcard.compile("*.jpg").matches("photo.jpg")} returns {@code true}.
+ * <p>
+ * <p>
+ * Unlike the regular expressions given by {@link Patterns#wildcardToRegex},
+ * a compiled expression is matched in time linear in the length of the input,
+ * without ever backtracking: the common shapes {@code "literal"},
+ * {@code "prefix*"}, {@code "*suffix"} and {@code "*infix*"} are matched
+ * directly, and the others by the automaton of a {@link WildcardSet}. Line
+ * terminators are ordinary characters.
+ * <p>
+ * <p>
+ * A compiled expression is immutable and thread-safe.
+ *
+ * @author <a href="mailto:richd.yang@gmail.com">Richard Yang</a>
+ * @since fundus
+ */
+public abstract class Wildcard implements Matcher<CharSequence> {
+    private final String expression;
+
+    private Wildcard(String expression) {
+        this.expression = expression;
+    }
+
+    /**
+     * Compiles {@code expression}.
+     */
+    public static Wildcard compile(String expression) {
+        notNull(expression);
+        if (expression.indexOf('?') == -1) {
+            int star = expression.indexOf('*');
+            int length = expression.length();
+            if (star == -1) {
+                return new Wildcard(expression) {
+                    public boolean matches(CharSequence input) {
+                        return input.length() == expression().length()
+                                && regionMatches(expression(), input, 0);
+                    }
+                };
+            }
+            if (star == length - 1) {
+                final String prefix = expression.substring(0, star);
+                return new Wildcard(expression) {
+                    public boolean matches(CharSequence input) {
+                        return input.length() >= prefix.length() && regionMatches(prefix, input, 0);
+                    }
+                };
+            }
+            if (star == 0 && expression.indexOf('*', 1) == -1) {
+                final String suffix = expression.substring(1);
+                return new Wildcard(expression) {
+                    public boolean matches(CharSequence input) {
+                        int start = input.length() - suffix.length();
+                        return start >= 0 && regionMatches(suffix, input, start);
+                    }
+                };
+            }
+            if (star == 0 && length > 2 && expression.indexOf('*', 1) == length - 1) {
+                final StringSearcher infix = StringSearcher.compile(expression.substring(1, length - 1));
+                return new Wildcard(expression) {
+                    public boolean matches(CharSequence input) {
+                        return infix.indexIn(input, 0) != -1;
+                    }
+                };
+            }
+        }
+        final WildcardSet set = WildcardSet.of(expression);
+        return new Wildcard(expression) {
+            public boolean matches(CharSequence input) {
+                return set.matches(input);
+            }
+        };
+    }
+
+    /**
+     * Returns {@code true} if this expression matches the whole of
+     * {@code input}.
+     */
+    public abstract boolean matches(CharSequence input);
+
+    /**
+     * Returns the expression this wildcard was compiled from.
+     */
+    public String expression() {
+        return expression;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    /**
+     * Returns {@code true} if {@code input} holds {@code string} at
+     * {@code start}.
+     */
+    private static boolean regionMatches(String string, CharSequence input, int start) {
+        for (int i = 0, length = string.length(); i < length; i++) {
+            if (input.charAt(start + i) != string.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
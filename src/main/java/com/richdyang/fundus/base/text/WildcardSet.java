@@ -0,0 +1,413 @@
+package com.richdyang.fundus.base.text;
+
+import static com.richdyang.fundus.base.ArgumentAssert.notNull;
+import static java.lang.System.arraycopy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matches an input against many wildcard expressions at once. In a wildcard
+ * expression, {@code *} stands for any sequence of characters, possibly
+ * empty, and {@code ?} for any one character; all other characters stand for
+ * themselves. Line terminators are ordinary characters.
+ * <p>
+ * <p>
+ * The expressions are merged into a trie, so expressions sharing a prefix
+ * share its states, and the trie is turned into a deterministic automaton
+ * when the set is created. Matching then costs one table lookup per character
+ * of the input, however many expressions there are, and never backtracks.
+ * Should the automaton grow beyond {@value #MAX_STATES} states, which takes
+ * many expressions with stars in their middle, the trie is walked
+ * directly instead, following all the expressions matching so far together.
+ * <p>
+ * <p>
+ * A set is immutable and thread-safe; it should be built once and reused.
+ *
+ * @author <a href="mailto:richd.yang@gmail.com">Richard Yang</a>
+ * @see Wildcard
+ * @since fundus
+ */
+public final class WildcardSet implements Matcher<CharSequence> {
+    static final int MAX_STATES = 1 << 12;
+
+    private final String[] expressions;
+    private final CharClasses classes;
+    private final int width;
+
+    private final Trie trie = new Trie();
+
+    /*
+     * The automaton, null if it was too large: transitions[state * width +
+     * class] is the next state, state 0 being the initial one; firstAccepts
+     * holds the first expression matched in each state, or -1.
+     */
+    private final int[] transitions;
+    private final int[] firstAccepts;
+    private final int[][] stateAccepts;
+    private final int dead;
+
+    private WildcardSet(String[] expressions) {
+        this.expressions = expressions;
+
+        StringBuilder chars = new StringBuilder();
+        for (String expression : expressions) {
+            notNull(expression);
+            for (int i = 0; i < expression.length(); i++) {
+                char c = expression.charAt(i);
+                if (c != '*' && c != '?') {
+                    chars.append(c);
+                }
+            }
+        }
+        this.classes = new CharClasses(chars);
+        this.width = classes.count();
+
+        for (int e = 0; e < expressions.length; e++) {
+            trie.add(expressions[e], e, classes);
+        }
+
+        // subset construction
+        Map<NodeSet, Integer> states = new HashMap<NodeSet, Integer>();
+        List<NodeSet> pending = new LinkedList<NodeSet>();
+        List<int[]> stateAccepts = new ArrayList<int[]>();
+        int[] transitions = new int[16 * width];
+        NodeSet initial = trie.initial();
+        states.put(initial, 0);
+        pending.add(initial);
+        stateAccepts.add(trie.accepted(initial));
+        boolean complete = true;
+        int dead = -1;
+        for (int state = 0; !pending.isEmpty(); state++) {
+            NodeSet set = pending.remove(0);
+            if (set.size == 0) {
+                dead = state;
+            }
+            if (transitions.length < (state + 1) * width) {
+                transitions = copyOf(transitions, transitions.length * 2);
+            }
+            for (int c = 0; c < width; c++) {
+                NodeSet next = trie.step(set, c);
+                Integer target = states.get(next);
+                if (target == null) {
+                    if (states.size() == MAX_STATES) {
+                        complete = false;
+                        break;
+                    }
+                    target = states.size();
+                    states.put(next, target);
+                    pending.add(next);
+                    stateAccepts.add(trie.accepted(next));
+                }
+                transitions[state * width + c] = target;
+            }
+            if (!complete) {
+                break;
+            }
+        }
+
+        if (complete) {
+            int count = states.size();
+            this.transitions = copyOf(transitions, count * width);
+            this.stateAccepts = stateAccepts.toArray(new int[count][]);
+            this.firstAccepts = new int[count];
+            for (int state = 0; state < count; state++) {
+                int[] accepted = this.stateAccepts[state];
+                firstAccepts[state] = accepted.length == 0 ? -1 : accepted[0];
+            }
+            this.dead = dead;
+        } else {
+            this.transitions = null;
+            this.stateAccepts = null;
+            this.firstAccepts = null;
+            this.dead = -1;
+        }
+    }
+
+    /**
+     * Returns a set of the given wildcard expressions.
+     */
+    public static WildcardSet of(String... expressions) {
+        return new WildcardSet(notNull(expressions).clone());
+    }
+
+    /**
+     * Returns a set of the given wildcard expressions.
+     */
+    public static WildcardSet of(Iterable<String> expressions) {
+        List<String> list = new ArrayList<String>();
+        for (String expression : notNull(expressions)) {
+            list.add(expression);
+        }
+        return new WildcardSet(list.toArray(new String[list.size()]));
+    }
+
+    /**
+     * Returns {@code true} if any of the expressions matches the whole of
+     * {@code input}.
+     */
+    public boolean matches(CharSequence input) {
+        return indexOfMatch(input) != -1;
+    }
+
+    /**
+     * Returns the index, in the order they were given, of the first
+     * expression matching the whole of {@code input}, or {@code -1} if none
+     * does.
+     */
+    public int indexOfMatch(CharSequence input) {
+        if (transitions == null) {
+            int[] accepted = trie.accepted(walk(input));
+            return accepted.length == 0 ? -1 : accepted[0];
+        }
+        int state = run(input);
+        return state == -1 ? -1 : firstAccepts[state];
+    }
+
+    /**
+     * Returns the expressions matching the whole of {@code input}, in the
+     * order they were given.
+     */
+    public List<String> matching(CharSequence input) {
+        int[] accepted;
+        if (transitions == null) {
+            accepted = trie.accepted(walk(input));
+        } else {
+            int state = run(input);
+            accepted = state == -1 ? new int[0] : stateAccepts[state];
+        }
+        if (accepted.length == 0) {
+            return Collections.emptyList();
+        }
+        List<String> matching = new ArrayList<String>(accepted.length);
+        for (int e : accepted) {
+            matching.add(expressions[e]);
+        }
+        return matching;
+    }
+
+    /**
+     * Returns the number of expressions in this set.
+     */
+    public int size() {
+        return expressions.length;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(expressions);
+    }
+
+    /**
+     * Runs the automaton over {@code input}, returning the final state, or
+     * {@code -1} once no expression can match any more.
+     */
+    private int run(CharSequence input) {
+        int state = 0;
+        for (int i = 0, length = input.length(); i < length; i++) {
+            state = transitions[state * width + classes.classOf(input.charAt(i))];
+            if (state == dead) {
+                return -1;
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Walks the trie over {@code input}, returning the nodes reached.
+     */
+    private NodeSet walk(CharSequence input) {
+        NodeSet set = trie.initial();
+        for (int i = 0, length = input.length(); i < length && set.size != 0; i++) {
+            set = trie.step(set, classes.classOf(input.charAt(i)));
+        }
+        return set;
+    }
+
+    // Arrays.copyOf() requires Java 6
+    private static int[] copyOf(int[] original, int length) {
+        int[] copy = new int[length];
+        arraycopy(original, 0, copy, 0, Math.min(original.length, length));
+        return copy;
+    }
+
+    /**
+     * The expressions merged into a trie: each node has its literal
+     * transitions by character class, its transition on '?', its transition
+     * on '*' to a node that loops on every character, and the expressions
+     * ending at it. Only modified while the set is created.
+     */
+    private static final class Trie {
+        private final List<Map<Integer, Integer>> literals = new ArrayList<Map<Integer, Integer>>();
+        private int[] anys = new int[16];
+        private int[] stars = new int[16];
+        private boolean[] loops = new boolean[16];
+        private final List<int[]> accepts = new ArrayList<int[]>();
+
+        Trie() {
+            newNode();
+        }
+
+        void add(String expression, int index, CharClasses classes) {
+            int node = 0;
+            for (int i = 0; i < expression.length(); i++) {
+                char c = expression.charAt(i);
+                if (c == '*') {
+                    if (!loops[node]) { // consecutive stars are one
+                        if (stars[node] == -1) {
+                            int star = newNode();
+                            stars[node] = star;
+                            loops[star] = true;
+                        }
+                        node = stars[node];
+                    }
+                } else if (c == '?') {
+                    if (anys[node] == -1) {
+                        int any = newNode();
+                        anys[node] = any;
+                    }
+                    node = anys[node];
+                } else {
+                    Map<Integer, Integer> children = literals.get(node);
+                    Integer child = children.get(classes.classOf(c));
+                    if (child == null) {
+                        child = newNode();
+                        children.put(classes.classOf(c), child);
+                    }
+                    node = child;
+                }
+            }
+            int[] accepted = accepts.get(node);
+            int[] grown = new int[accepted.length + 1];
+            arraycopy(accepted, 0, grown, 0, accepted.length);
+            grown[accepted.length] = index;
+            accepts.set(node, grown);
+        }
+
+        private int newNode() {
+            int node = literals.size();
+            if (node == anys.length) {
+                anys = copyOf(anys, node * 2);
+                stars = copyOf(stars, node * 2);
+                boolean[] grown = new boolean[node * 2];
+                arraycopy(loops, 0, grown, 0, node);
+                loops = grown;
+            }
+            literals.add(new HashMap<Integer, Integer>(4));
+            anys[node] = -1;
+            stars[node] = -1;
+            accepts.add(new int[0]);
+            return node;
+        }
+
+        /**
+         * Returns the nodes reached from {@code set} on a character of class
+         * {@code c}.
+         */
+        private NodeSet step(NodeSet set, int c) {
+            int[] next = new int[set.size * 3];
+            int size = 0;
+            for (int i = 0; i < set.size; i++) {
+                int node = set.nodes[i];
+                Integer child = c == 0 ? null : literals.get(node).get(c);
+                if (child != null) {
+                    next[size++] = child;
+                }
+                if (anys[node] != -1) {
+                    next[size++] = anys[node];
+                }
+                if (loops[node]) {
+                    next[size++] = node;
+                }
+            }
+            return closure(next, size);
+        }
+
+        /**
+         * Adds to the first {@code size} nodes the nodes reached from them on an
+         * empty sequence of characters, which are those after their stars.
+         */
+        private NodeSet closure(int[] nodes, int size) {
+            int[] all = new int[size * 2];
+            arraycopy(nodes, 0, all, 0, size);
+            int count = size;
+            for (int i = 0; i < size; i++) {
+                if (stars[nodes[i]] != -1) {
+                    all[count++] = stars[nodes[i]];
+                }
+            }
+            return new NodeSet(all, count);
+        }
+
+        private int[] accepted(NodeSet set) {
+            int[] accepted = new int[0];
+            for (int i = 0; i < set.size; i++) {
+                int[] more = accepts.get(set.nodes[i]);
+                if (more.length != 0) {
+                    int[] merged = new int[accepted.length + more.length];
+                    arraycopy(accepted, 0, merged, 0, accepted.length);
+                    arraycopy(more, 0, merged, accepted.length, more.length);
+                    accepted = merged;
+                }
+            }
+            Arrays.sort(accepted);
+            return accepted;
+        }
+
+        NodeSet initial() {
+            return closure(new int[]{0}, 1);
+        }
+    }
+
+    /**
+     * A set of trie nodes, kept sorted and without duplicates so that equal
+     * sets are equal objects.
+     */
+    private static final class NodeSet {
+        final int[] nodes;
+        final int size;
+
+        NodeSet(int[] nodes, int count) {
+            Arrays.sort(nodes, 0, count);
+            int size = 0;
+            for (int i = 0; i < count; i++) {
+                if (size == 0 || nodes[i] != nodes[size - 1]) {
+                    nodes[size++] = nodes[i];
+                }
+            }
+            this.nodes = nodes;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof NodeSet)) {
+                return false;
+            }
+            NodeSet other = (NodeSet) obj;
+            if (size != other.size) {
+                return false;
+            }
+            for (int i = 0; i < size; i++) {
+                if (nodes[i] != other.nodes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 1;
+            for (int i = 0; i < size; i++) {
+                hash = 31 * hash + nodes[i];
+            }
+            return hash;
+        }
+    }
+}
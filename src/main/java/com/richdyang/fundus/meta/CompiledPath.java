@@ -0,0 +1,291 @@
+package com.richdyang.fundus.meta;
+
+import java.lang.reflect.Array;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.richdyang.fundus.meta.ExpressionHelper.Segment;
+import com.richdyang.fundus.meta.introspect.BeanAccessor;
+import com.richdyang.fundus.meta.introspect.BeanIntrospector;
+import com.richdyang.fundus.meta.introspect.PropertyAccessor;
+import com.richdyang.fundus.meta.reflect.ClassReflector;
+import com.richdyang.fundus.meta.reflect.FieldAccessor;
+import com.richdyang.fundus.meta.reflect.ObjectAccessor;
+
+import static com.richdyang.fundus.base.ArgumentAssert.hasLength;
+import static com.richdyang.fundus.base.ArgumentAssert.notNull;
+import static com.richdyang.fundus.meta.ExpressionHelper.parse;
+
+/**
+ * A nested property or field expression, such as
+ * {@code "prop1.prop2.listprop[2].prop3"}, parsed once to be evaluated
+ * against many objects. For example,
+ * <pre>
+ * CompiledPath path = CompiledPath.compileProperties("customer.addresses[0].city");
+ * for (Order order : orders) {
+ *     cities.add(path.evaluate(order));
+ * }
+ * </pre>
+ * Each segment of the path remembers the accessor it resolved for the last
+ * class it was evaluated on, so that evaluating the path on objects of the
+ * same classes as before looks nothing up and allocates nothing of its own;
+ * a segment evaluated on another class resolves and remembers its accessor
+ * for that class instead.
+ * <p>
+ * A path is thread-safe, and is best compiled once and kept, for instance in
+ * a constant. {@link #forProperties(String)} and {@link #forFields(String)}
+ * keep compiled paths in a bounded cache instead, for
+ * callers which only have the expression at hand, such as
+ * {@link BeanAccessor#readNestedProperty(String)}.
+ *
+ * @author <a href="mailto:richd.yang@gmail.com">Richard Yang</a>
+ * @see BeanAccessor#readNestedProperty(String)
+ * @see ObjectAccessor#readNestedField(String)
+ * @since fundus
+ */
+public final class CompiledPath {
+    private static final int CACHE_SIZE = 1 << 10;
+    private static final ConcurrentMap<String, CompiledPath> PROPERTY_PATHS = new ConcurrentHashMap<String, CompiledPath>();
+    private static final ConcurrentMap<String, CompiledPath> FIELD_PATHS = new ConcurrentHashMap<String, CompiledPath>();
+
+    private final String expression;
+    private final boolean fields;
+    private final Step[] steps;
+
+    private CompiledPath(String expression, boolean fields) {
+        this.expression = expression;
+        this.fields = fields;
+
+        Segment[] segments = parse(expression);
+        this.steps = new Step[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            steps[i] = new Step(segments[i]);
+        }
+    }
+
+    /**
+     * Compiles an expression of JavaBean properties, read by their getters as
+     * {@link BeanAccessor#readNestedProperty(String)} does.
+     *
+     * @throws IllegalStateException if {@code expression} is illegal
+     */
+    public static CompiledPath compileProperties(String expression) {
+        hasLength(expression);
+        return new CompiledPath(expression, false);
+    }
+
+    /**
+     * Compiles an expression of fields, read directly as
+     * {@link ObjectAccessor#readNestedField(String)} does, where a
+     * {@code super} segment looks the next field up in the superclass.
+     *
+     * @throws IllegalStateException if {@code expression} is illegal
+     */
+    public static CompiledPath compileFields(String expression) {
+        hasLength(expression);
+        return new CompiledPath(expression, true);
+    }
+
+    /**
+     * Returns the compiled path of an expression of JavaBean properties, from
+     * a bounded cache of paths which evicts arbitrary paths when full.
+     *
+     * @throws IllegalStateException if {@code expression} is illegal
+     * @see #compileProperties(String)
+     */
+    public static CompiledPath forProperties(String expression) {
+        hasLength(expression);
+        CompiledPath path = PROPERTY_PATHS.get(expression);
+        return path != null ? path : cache(PROPERTY_PATHS, compileProperties(expression));
+    }
+
+    /**
+     * Returns the compiled path of an expression of fields, from a bounded
+     * cache of paths which evicts arbitrary paths when full.
+     *
+     * @throws IllegalStateException if {@code expression} is illegal
+     * @see #compileFields(String)
+     */
+    public static CompiledPath forFields(String expression) {
+        hasLength(expression);
+        CompiledPath path = FIELD_PATHS.get(expression);
+        return path != null ? path : cache(FIELD_PATHS, compileFields(expression));
+    }
+
+    private static CompiledPath cache(ConcurrentMap<String, CompiledPath> paths, CompiledPath path) {
+        CompiledPath cached = paths.putIfAbsent(path.expression, path);
+        if (cached != null) {
+            return cached;
+        }
+        // evict arbitrary paths, one at a time, rather than clearing the cache
+        for (Iterator<String> expressions = paths.keySet().iterator();
+             paths.size() > CACHE_SIZE && expressions.hasNext(); ) {
+            if (!expressions.next().equals(path.expression)) {
+                expressions.remove();
+            }
+        }
+        return path;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * Returns the value of this path on {@code root}.
+     *
+     * @throws IllegalStateException if a segment is {@code null}, missing, or
+     *                               cannot be indexed
+     */
+    public Object evaluate(Object root) {
+        notNull(root);
+        return fields ? evaluateFields(root) : evaluateProperties(root);
+    }
+
+    private Object evaluateProperties(Object value) {
+        for (Step step : steps) {
+            if (value == null) {
+                throw new IllegalStateException(step.name + " is null");
+            }
+
+            Binding binding = step.binding;
+            Class<?> receiverClass = value.getClass();
+            if (binding == null || binding.receiverClass != receiverClass) {
+                binding = step.bindProperty(receiverClass);
+            }
+            value = binding.properties.read(value, binding.index);
+
+            if (step.array) {
+                value = index(value, step);
+            }
+        }
+        return value;
+    }
+
+    private Object evaluateFields(Object value) {
+        Class<?> inheritedClass = value.getClass();
+        for (Step step : steps) {
+            if (value == null) {
+                throw new IllegalStateException(step.name + " is null");
+            }
+
+            inheritedClass = inheritedClass.isAssignableFrom(value.getClass()) ? inheritedClass : value.getClass();
+            if (step.superclass) {
+                inheritedClass = inheritedClass.getSuperclass();
+                continue;
+            }
+
+            Binding binding = step.binding;
+            if (binding == null || binding.receiverClass != inheritedClass) {
+                binding = step.bindField(inheritedClass);
+            }
+            try {
+                value = binding.field.get(value);
+            } catch (IllegalArgumentException e) {
+                value = null;// suppressed, as by ObjectAccessor
+            } catch (IllegalAccessException e) {
+                value = null;// suppressed, as by ObjectAccessor
+            }
+
+            if (step.array) {
+                value = index(value, step);
+            }
+        }
+        return value;
+    }
+
+    private static Object index(Object value, Step step) {
+        if (value == null) {
+            throw new IllegalStateException(step.name + " is null and index access failed");
+        }
+
+        int index = step.index;
+        if (index < 0) {
+            throw new IllegalStateException(step.name + " no index specified");
+        }
+
+        if (value instanceof Object[]) {
+            Object[] arr = (Object[]) value;
+            if (index >= arr.length) {
+                throw new IllegalStateException(step.name + " index out of bound");
+            }
+            return arr[index];
+        } else if (value.getClass().isArray()) {
+            if (index >= Array.getLength(value)) {
+                throw new IllegalStateException(step.name + " index out of bound");
+            }
+            return Array.get(value, index);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            if (index >= list.size()) {
+                throw new IllegalStateException(step.name + " index out of bound");
+            }
+            return list.get(index);
+        }
+        throw new IllegalStateException(step.name + " not support index access");
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    /**
+     * A segment of a path, with the accessor it resolved last.
+     */
+    private static final class Step {
+        final String name;
+        final boolean array;
+        final int index;
+        final boolean superclass;
+        volatile Binding binding;
+
+        Step(Segment segment) {
+            this.name = segment.name;
+            this.array = segment.array;
+            this.index = segment.index;
+            this.superclass = "super".equals(segment.name);
+        }
+
+        Binding bindProperty(Class<?> receiverClass) {
+            PropertyAccessor<?> properties = BeanIntrospector.forClass(receiverClass).getPropertyAccessor();
+            int index = properties.indexOf(name);
+            if (index == -1 || !properties.isReadable(index)) {
+                throw new IllegalStateException("the class [" + receiverClass.getName() + "] hasn't property getter: " + name);
+            }
+            Binding binding = new Binding(receiverClass, properties, index, null);
+            this.binding = binding;
+            return binding;
+        }
+
+        Binding bindField(Class<?> inheritedClass) {
+            FieldAccessor field = ClassReflector.forClass(inheritedClass).getFieldAccessor(name);
+            if (field == null) {
+                throw new IllegalStateException("the class [" + inheritedClass.getName() + "] hasn't field: " + name);
+            }
+            Binding binding = new Binding(inheritedClass, null, -1, field);
+            this.binding = binding;
+            return binding;
+        }
+    }
+
+    /**
+     * The accessor of a segment for a class, replaced as a whole when the
+     * segment is evaluated on another class.
+     */
+    private static final class Binding {
+        final Class<?> receiverClass;
+        final PropertyAccessor<?> properties;
+        final int index;
+        final FieldAccessor field;
+
+        Binding(Class<?> receiverClass, PropertyAccessor<?> properties, int index, FieldAccessor field) {
+            this.receiverClass = receiverClass;
+            this.properties = properties;
+            this.index = index;
+            this.field = field;
+        }
+    }
+}
@@ -2,15 +2,14 @@ package com.richdyang.fundus.meta.introspect;
 
 import java.beans.PropertyDescriptor;
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import com.richdyang.fundus.base.bind.TypeBinder;
 import com.richdyang.fundus.base.ArgumentAssert;
+import com.richdyang.fundus.meta.CompiledPath;
 import com.richdyang.fundus.meta.ExpressionHelper;
 import com.richdyang.fundus.meta.ExpressionHelper.Segment;
 import com.richdyang.fundus.meta.reflect.ObjectAccessor;
@@ -19,7 +18,6 @@ import static com.richdyang.fundus.base.ArgumentAssert.hasLength;
 import static com.richdyang.fundus.base.ArgumentAssert.notNull;
 import static com.richdyang.fundus.meta.ExpressionHelper.parse;
 import static com.richdyang.fundus.meta.introspect.BeanIntrospector.forClass;
-import static java.lang.reflect.Modifier.isPublic;
 
 
 /**
@@ -58,56 +56,16 @@ public class BeanAccessor {
      * <pre>
      * accessor.readProperty("prop1.prop2.listprop[2].prop3");
      * </pre>
+     * The expression is compiled once, and its path cached.
      *
      * @param propertyExpression
      * @return
+     * @see CompiledPath#forProperties(String)
      */
     public Object readNestedProperty(String propertyExpression) {
         hasLength(propertyExpression);
 
-        BeanAccessor accessor = null;
-        Object propertyValue = object;
-
-        Segment[] segments = parse(propertyExpression);
-
-        for (Segment segment : segments) {
-            String propertyName = segment.name;
-
-            if (propertyValue == null) {
-                throw new IllegalStateException(segment.name + " is null");
-            }
-
-            accessor = (accessor == null) ? this : new BeanAccessor(propertyValue);
-
-            propertyValue = accessor.readProperty(propertyName);
-
-            if (segment.array) {
-                if (propertyValue == null) {
-                    throw new IllegalStateException(segment.name + " is null and index access failed");
-                }
-
-                int index = segment.index;
-
-                Class<?> type = propertyValue.getClass();
-                if (type.isArray()) {
-                    Object[] arr = (Object[]) propertyValue;
-                    if (index >= arr.length) {
-                        throw new IllegalStateException(segment.name + " index out of bound");
-                    }
-                    propertyValue = arr[index];
-                } else if (List.class.isAssignableFrom(type)) {
-                    List list = (List) propertyValue;
-                    if (index >= list.size()) {
-                        throw new IllegalStateException(segment.name + " index out of bound");
-                    }
-                    propertyValue = list.get(index);
-                } else {
-                    throw new IllegalStateException(segment.name + " not support index access");
-                }
-            }
-        }
-
-        return propertyValue;
+        return CompiledPath.forProperties(propertyExpression).evaluate(object);
     }
 
     /**
@@ -193,47 +151,25 @@ public class BeanAccessor {
     public Object readProperty(String propertyName) {
         hasLength(propertyName);
 
-        Method getter = classIntrospector.getGetterMethod(propertyName);
-        if (getter == null) {
+        PropertyAccessor accessor = classIntrospector.getPropertyAccessor();
+        int index = accessor.indexOf(propertyName);
+        if (index == -1 || !accessor.isReadable(index)) {
             throw new IllegalStateException("the class [" + clazz.getName() + "] hasn't property getter: " + propertyName);
         }
 
-        int modifiers = getter.getModifiers();
-        if (isPublic(modifiers)) {
-            try {
-                return getter.invoke(object, new Object[0]);
-            } catch (Exception ex) {
-                throw new IllegalStateException("invoke property getter failed");
-            }
-        }
-
-        throw new IllegalStateException("the class [" + clazz.getName() + "] hasn't public property getter: " + propertyName);
+        return accessor.read(object, index);
     }
 
     public void writeProperty(String propertyName, Object value) {
         hasLength(propertyName);
 
-        PropertyDescriptor descriptor = classIntrospector.getPropertyDescriptor(propertyName);
-        Method setter = classIntrospector.getSetterMethod(propertyName);
-        if (setter == null) {
+        PropertyAccessor accessor = classIntrospector.getPropertyAccessor();
+        int index = accessor.indexOf(propertyName);
+        if (index == -1 || !accessor.isWritable(index)) {
             throw new IllegalStateException("the class [" + clazz.getName() + "] hasn't property setter: " + propertyName);
         }
 
-        Class cls = descriptor.getPropertyType();
-        TypeBinder binder = new TypeBinder(cls);
-
-        int modifiers = setter.getModifiers();
-        if (isPublic(modifiers)) {
-            try {
-                Object obj = binder.bind(value);
-                setter.invoke(object, obj);
-                return;
-            } catch (Exception ex) {
-                throw new IllegalStateException("invoke property setter failed: " + setter + " with actual parameter " + value + "(" + (value != null ? value.getClass().getName() : Object.class.getName()) + ")");
-            }
-        }
-
-        throw new IllegalStateException("the class [" + clazz.getName() + "] hasn't public property setter: " + propertyName);
+        accessor.write(object, index, value);
     }
 
     public void writeProperties(PropertyProvider provider) {
@@ -12,10 +12,9 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
-import com.richdyang.fundus.base.datastruct.LRUMap;
+import com.richdyang.fundus.base.datastruct.ClassCache;
 
 import static java.beans.Introspector.getBeanInfo;
-import static java.util.Collections.synchronizedMap;
 
 /**
  * Bean information for <code>Class</code> and cached support provided
@@ -26,15 +25,38 @@ import static java.util.Collections.synchronizedMap;
  */
 public class BeanIntrospector<T> {
     /*------------------For cached descriptor-------------------*/
-    private static Map<Class, BeanIntrospector> INSTANCES = synchronizedMap(new LRUMap(40));// cached
+    private static final ClassCache<BeanIntrospector> INSTANCES = new ClassCache<BeanIntrospector>();// cached
+    private static final ClassCache.Loader<BeanIntrospector> LOADER = new ClassCache.Loader<BeanIntrospector>() {
+        public BeanIntrospector load(Class<?> clazz) {
+            return new BeanIntrospector(clazz);
+        }
+    };
 
+    /**
+     * Returns the introspector of {@code clazz}. A class is introspected once:
+     * threads asking for a class being introspected wait for its introspector.
+     */
     public static <T> BeanIntrospector<T> forClass(Class<T> clazz) {
-        BeanIntrospector classIntrospector = INSTANCES.get(clazz);
-        if (classIntrospector == null) {
-            classIntrospector = new BeanIntrospector(clazz);
-            INSTANCES.put(clazz, classIntrospector);
+        return INSTANCES.get(clazz, LOADER);
+    }
+
+    /**
+     * Removes the introspectors of the classes loaded by {@code classLoader}
+     * or its descendants, along with their {@link Introspector} bean
+     * information, so that a redeployed application can be unloaded.
+     */
+    public static void flush(ClassLoader classLoader) {
+        for (Class<?> clazz : INSTANCES.flush(classLoader)) {
+            Introspector.flushFromCaches(clazz);
         }
-        return classIntrospector;
+    }
+
+    /**
+     * Returns the cache of introspectors, unbounded unless a maximum size is
+     * set on it, with its hit and miss counts.
+     */
+    public static ClassCache<BeanIntrospector> getCache() {
+        return INSTANCES;
     }
 
 	/*----------------------------------------------------------*/
@@ -50,6 +72,8 @@ public class BeanIntrospector<T> {
 
     private Map<String, MethodDescriptor> methodDescriptors;
 
+    private volatile PropertyAccessor<T> propertyAccessor;
+
     private BeanIntrospector(Class clazz) {
         this.clazz = clazz;
         this.propertyDescriptors = new LinkedHashMap<String, PropertyDescriptor>();
@@ -150,6 +174,21 @@ public class BeanIntrospector<T> {
         return propertyDescriptors.get(propertyName);
     }
 
+    /**
+     * Returns the accessor reading and writing the properties of the beans of
+     * the class by index, created on first use and cached with this
+     * introspector.
+     */
+    public PropertyAccessor<T> getPropertyAccessor() {
+        PropertyAccessor<T> accessor = propertyAccessor;
+        if (accessor == null) {
+            // racing threads create equivalent accessors, any of which will do
+            accessor = new PropertyAccessor<T>(clazz, propertyDescriptors);
+            propertyAccessor = accessor;
+        }
+        return accessor;
+    }
+
     /**
      * 递归查找所有类层次的field
      *
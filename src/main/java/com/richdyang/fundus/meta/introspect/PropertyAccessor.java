@@ -0,0 +1,170 @@
+package com.richdyang.fundus.meta.introspect;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.richdyang.fundus.base.bind.TypeBinder;
+
+import static com.richdyang.fundus.base.ArgumentAssert.indexInBounds;
+import static com.richdyang.fundus.base.ArgumentAssert.notNull;
+import static java.lang.reflect.Modifier.isPublic;
+
+/**
+ * Reads and writes the properties of the beans of a class by index, with
+ * everything resolved ahead of time: the properties are numbered once, the
+ * getters and setters of non-public classes made accessible once, and their
+ * {@link TypeBinder}s created once, so that an access is a bounds check and a
+ * direct call of the accessor. For example,
+ * <pre>
+ * PropertyAccessor&lt;User&gt; accessor = BeanIntrospector.forClass(User.class).getPropertyAccessor();
+ * int name = accessor.indexOf("name");
+ * for (User user : users) {
+ *     names.add(accessor.read(user, name));
+ * }
+ * </pre>
+ * An accessor is immutable and thread-safe, and cached by its
+ * {@link BeanIntrospector}.
+ *
+ * @author <a href="mailto:richd.yang@gmail.com">Richard Yang</a>
+ * @see BeanAccessor
+ * @since fundus
+ */
+public final class PropertyAccessor<T> {
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
+    private final Class<T> clazz;
+    private final String[] names;
+    private final Map<String, Integer> indexes;
+    private final Method[] getters;
+    private final Method[] setters;
+    private final TypeBinder[] binders;
+
+    PropertyAccessor(Class<T> clazz, Map<String, PropertyDescriptor> descriptors) {
+        this.clazz = clazz;
+        int count = descriptors.size();
+        this.names = new String[count];
+        this.indexes = new HashMap<String, Integer>(count * 2);
+        this.getters = new Method[count];
+        this.setters = new Method[count];
+        this.binders = new TypeBinder[count];
+
+        int index = 0;
+        for (PropertyDescriptor descriptor : descriptors.values()) {
+            names[index] = descriptor.getName();
+            indexes.put(descriptor.getName(), index);
+            getters[index] = accessible(descriptor.getReadMethod());
+            setters[index] = accessible(descriptor.getWriteMethod());
+            if (descriptor.getPropertyType() != null) {
+                binders[index] = new TypeBinder(descriptor.getPropertyType());
+            }
+            index++;
+        }
+    }
+
+    /**
+     * Returns {@code method} if reflection can invoke it as it is, that is if
+     * it is public and declared by a public class, or else a copy of it made
+     * accessible, so that it is invoked even when declared by a class that is
+     * not public. The method of the property descriptor itself is shared with
+     * the {@link java.beans.Introspector} cache, and left as it is. Where a
+     * security manager or a module forbids it, the method is dropped.
+     */
+    private static Method accessible(Method method) {
+        if (method == null) {
+            return null;
+        }
+        Class<?> declaringClass = method.getDeclaringClass();
+        if (isPublic(method.getModifiers()) && isPublic(declaringClass.getModifiers())) {
+            return method;
+        }
+        try {
+            Method copy = declaringClass.getDeclaredMethod(method.getName(), method.getParameterTypes());
+            copy.setAccessible(true);
+            return copy;
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (RuntimeException e) {
+            // SecurityException, or InaccessibleObjectException since Java 9
+            return null;
+        }
+    }
+
+    public Class<T> getTargetClass() {
+        return clazz;
+    }
+
+    /**
+     * Returns the number of properties; their indexes range from {@code 0}
+     * to this number.
+     */
+    public int getPropertyCount() {
+        return names.length;
+    }
+
+    /**
+     * Returns the index of the property named {@code propertyName}, or
+     * {@code -1} if there is none.
+     */
+    public int indexOf(String propertyName) {
+        Integer index = indexes.get(propertyName);
+        return index == null ? -1 : index;
+    }
+
+    public String getPropertyName(int index) {
+        return names[indexInBounds(index, names.length)];
+    }
+
+    public boolean isReadable(int index) {
+        return getters[indexInBounds(index, names.length)] != null;
+    }
+
+    public boolean isWritable(int index) {
+        return setters[indexInBounds(index, names.length)] != null;
+    }
+
+    /**
+     * Returns the value of the property at {@code index} of {@code bean}.
+     *
+     * @throws IllegalStateException if the property has no accessible getter,
+     *                               or the getter fails
+     */
+    public Object read(Object bean, int index) {
+        notNull(bean);
+        Method getter = getters[indexInBounds(index, names.length)];
+        if (getter == null) {
+            throw new IllegalStateException("the class [" + clazz.getName() + "] hasn't property getter: " + names[index]);
+        }
+        try {
+            return getter.invoke(bean, NO_ARGUMENTS);
+        } catch (InvocationTargetException ex) {
+            throw new IllegalStateException("invoke property getter failed: " + getter, ex.getCause());
+        } catch (Exception ex) {
+            throw new IllegalStateException("invoke property getter failed: " + getter, ex);
+        }
+    }
+
+    /**
+     * Sets the property at {@code index} of {@code bean} to {@code value},
+     * bound to the type of the property.
+     *
+     * @throws IllegalStateException if the property has no accessible setter,
+     *                               or the setter fails
+     */
+    public void write(Object bean, int index, Object value) {
+        notNull(bean);
+        Method setter = setters[indexInBounds(index, names.length)];
+        if (setter == null) {
+            throw new IllegalStateException("the class [" + clazz.getName() + "] hasn't property setter: " + names[index]);
+        }
+        try {
+            setter.invoke(bean, binders[index].bind(value));
+        } catch (InvocationTargetException ex) {
+            throw new IllegalStateException("invoke property setter failed: " + setter + " with actual parameter " + value, ex.getCause());
+        } catch (Exception ex) {
+            throw new IllegalStateException("invoke property setter failed: " + setter + " with actual parameter " + value + "(" + (value != null ? value.getClass().getName() : Object.class.getName()) + ")", ex);
+        }
+    }
+}
@@ -9,12 +9,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.richdyang.fundus.base.datastruct.ClassCache;
 import com.richdyang.fundus.base.datastruct.HashMultiMap;
-import com.richdyang.fundus.base.datastruct.LRUMap;
 import com.richdyang.fundus.base.datastruct.MultiMap;
 
-import static java.util.Collections.synchronizedMap;
-
 /**
  * Reflected class information for <code>Class</code> and cached support provided
  *
@@ -25,28 +23,45 @@ import static java.util.Collections.synchronizedMap;
 public class ClassReflector<T> {
 
     /*------------------For cached descriptor-------------------*/
-    private static Map<Class, ClassReflector> INSTANCES = synchronizedMap(new LRUMap(40));//cached
+    private static final ClassCache<ClassReflector> INSTANCES = new ClassCache<ClassReflector>();//cached
 
     public static <T> ClassReflector<T> forClass(Class<T> clazz) {
         ClassReflector classDescriptor = INSTANCES.get(clazz);
         if (classDescriptor == null) {
-            classDescriptor = new ClassReflector(clazz);
-            INSTANCES.put(clazz, classDescriptor);
+            classDescriptor = INSTANCES.putIfAbsent(clazz, new ClassReflector(clazz));
         }
         return classDescriptor;
     }
+
+    /**
+     * Removes the reflectors of the classes loaded by {@code classLoader} or
+     * its descendants, so that a redeployed application can be unloaded.
+     */
+    public static void flush(ClassLoader classLoader) {
+        INSTANCES.flush(classLoader);
+    }
+
+    /**
+     * Returns the cache of reflectors, unbounded unless a maximum size is set
+     * on it, with its hit and miss counts.
+     */
+    public static ClassCache<ClassReflector> getCache() {
+        return INSTANCES;
+    }
 	/*----------------------------------------------------------*/
 
     private Class<T> clazz;
     private boolean resolved = false;
 
     private Map<String, Field> declaredFields; //all declared fields excluding supper class's
+    private Map<String, FieldAccessor> fieldAccessors;
     private MultiMap<String, Method> declaredMethods;//all declared methods excluding supper class's
     private MultiMap<String, Constructor> declaredConstructors;
 
     private ClassReflector(Class clazz) {
         this.clazz = clazz;
         this.declaredFields = new HashMap<String, Field>();
+        this.fieldAccessors = new HashMap<String, FieldAccessor>();
         this.declaredMethods = new HashMultiMap<String, Method>();
         this.declaredConstructors = new HashMultiMap<String, Constructor>();
 
@@ -59,6 +74,10 @@ public class ClassReflector<T> {
             for (Field field : fieldsArray) {
                 declaredFields.put(field.getName(), field);
             }
+            // fresh copies, so that the fields handed out are never made accessible
+            for (Field field : clazz.getDeclaredFields()) {
+                fieldAccessors.put(field.getName(), new FieldAccessor(field));// made accessible on first use
+            }
 
             Method[] methodsArray = clazz.getDeclaredMethods();
             for (Method method : methodsArray) {
@@ -86,6 +105,14 @@ public class ClassReflector<T> {
         return declaredFields.get(fieldName);
     }
 
+    /**
+     * Returns the accessor of the declared field named {@code fieldName}, or
+     * {@code null} if there is none.
+     */
+    public FieldAccessor getFieldAccessor(String fieldName) {
+        return fieldAccessors.get(fieldName);
+    }
+
     public MultiMap<String, Method> getDeclaredMethods() {
         return declaredMethods;
     }
@@ -0,0 +1,82 @@
+package com.richdyang.fundus.meta.reflect;
+
+import java.lang.reflect.Field;
+
+import com.richdyang.fundus.base.bind.TypeBinder;
+
+import static com.richdyang.fundus.base.primitives.Primitives.wrap;
+
+/**
+ * Reads and writes a field, made accessible once when it is first accessed
+ * rather than around every access, so that an access skips the language
+ * access checks and never races with another thread restoring the
+ * accessibility of the same field. The accessor holds a
+ * private copy of the field, so the fields returned by
+ * {@link ClassReflector#getDeclaredField(String)} are left as they are.
+ * <p>
+ * A written value is {@linkplain TypeBinder bound} to the type of the field,
+ * unless it is of that type already, or of its wrapper type for a primitive
+ * field, in which case it is stored as it is. An accessor is immutable and
+ * thread-safe.
+ *
+ * @author <a href="mailto:richd.yang@gmail.com">Richard Yang</a>
+ * @see ClassReflector#getFieldAccessor(String)
+ * @since fundus
+ */
+public final class FieldAccessor {
+    private final Field field;
+    private final Class<?> valueType;
+    private final TypeBinder binder;
+    private volatile boolean opened;
+
+    FieldAccessor(Field field) {
+        this.field = field;
+        this.valueType = wrap(field.getType());
+        this.binder = new TypeBinder(field.getType());
+    }
+
+    /**
+     * Returns the value of the field of {@code target}, which is ignored for
+     * a static field.
+     *
+     * @throws IllegalArgumentException if {@code target} is not an instance of
+     *                                  the class declaring the field
+     * @throws IllegalAccessException   if the field could not be made
+     *                                  accessible and is not public
+     */
+    public Object get(Object target) throws IllegalAccessException {
+        return open().get(target);
+    }
+
+    /**
+     * Sets the field of {@code target} to {@code value}, bound to the type of
+     * the field.
+     *
+     * @throws IllegalArgumentException if {@code target} is not an instance of
+     *                                  the class declaring the field, or
+     *                                  {@code value} cannot be bound
+     * @throws IllegalAccessException   if the field could not be made
+     *                                  accessible and is not public, or is final
+     */
+    public void set(Object target, Object value) throws IllegalAccessException {
+        open().set(target, valueType.isInstance(value) ? value : binder.bind(value));
+    }
+
+    /**
+     * Makes the field accessible on first use, so that reflecting a class
+     * never opens the fields which are not accessed. Where it cannot be, as
+     * with a security manager or a module which does not open its package,
+     * the field is left to the access checks, which public fields pass.
+     */
+    private Field open() {
+        if (!opened) {
+            try {
+                field.setAccessible(true);
+            } catch (RuntimeException e) {
+                // SecurityException, or InaccessibleObjectException since Java 9
+            }
+            opened = true;
+        }
+        return field;
+    }
+}
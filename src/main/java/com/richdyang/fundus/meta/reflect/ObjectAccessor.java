@@ -8,7 +8,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import com.richdyang.fundus.base.ArgumentAssert;
-import com.richdyang.fundus.base.bind.TypeBinder;
+import com.richdyang.fundus.meta.CompiledPath;
 import com.richdyang.fundus.meta.ExpressionHelper;
 
 import static com.richdyang.fundus.base.ArgumentAssert.*;
@@ -52,9 +52,7 @@ public class ObjectAccessor {
         Object value = null;
 
         try {
-            field.setAccessible(true);
-            value = field.get(object);
-            field.setAccessible(false);
+            value = getFieldAccessor(field).get(object);
         } catch (IllegalArgumentException e) {
             //simplely suppressed, because shouldn't occur
         } catch (IllegalAccessException e) {
@@ -81,79 +79,27 @@ public class ObjectAccessor {
         return readField(field);
     }
 
+    /**
+     * Support fieldNameExpression read, where {@code super} looks the next
+     * field up in the superclass:
+     * <pre>
+     * accessor.readNestedField("field1.super.field2.listfield[2]");
+     * </pre>
+     * The expression is compiled once, and its path cached.
+     *
+     * @see CompiledPath#forFields(String)
+     */
     public Object readNestedField(String fieldNameExpression) {
         hasLength(fieldNameExpression);
 
-        ObjectAccessor accessor = null;
-        Object fieldValue = object;
-        Class<?> inheritedClass = clazz;
-
-        Segment[] segments = parse(fieldNameExpression);
-
-        for (Segment segment : segments) {
-            String fieldName = segment.name;
-
-            if (fieldValue == null) {
-                throw new IllegalStateException(segment.name + " is null");
-            }
-
-            accessor = (accessor == null) ? this : new ObjectAccessor(fieldValue);
-
-            inheritedClass = inheritedClass.isAssignableFrom(fieldValue.getClass()) ? inheritedClass : fieldValue.getClass();
-
-            if ("super".equals(fieldName)) {
-                inheritedClass = inheritedClass.getSuperclass();
-                continue;
-            }
-
-            fieldValue = accessor.readField(inheritedClass, fieldName);
-
-            if (segment.array) {
-                if (fieldValue == null) {
-                    throw new IllegalStateException(segment.name + " is null and index access failed");
-                }
-
-                int index = segment.index;
-
-                if (index < 0) {
-                    throw new IllegalStateException(segment.name + " no index specified");
-                }
-
-                Class<?> type = fieldValue.getClass();
-                if (type.isArray()) {
-                    Object[] arr = (Object[]) fieldValue;
-                    if (index >= arr.length) {
-                        throw new IllegalStateException(segment.name + " index out of bound");
-                    }
-
-                    fieldValue = arr[index];
-                } else if (List.class.isAssignableFrom(type)) {
-                    List list = (List) fieldValue;
-                    if (index >= list.size()) {
-                        throw new IllegalStateException(segment.name + " index out of bound");
-                    }
-                    fieldValue = list.get(index);
-                } else {
-                    throw new IllegalStateException(segment.name + " not support index access");
-                }
-            }
-        }
-
-        return fieldValue;
+        return CompiledPath.forFields(fieldNameExpression).evaluate(object);
     }
 
     public void writeField(Field field, Object value) {
         notNull(field);
 
         try {
-            boolean accessible = field.isAccessible();
-
-            Class<?> cls = field.getType();
-            TypeBinder binder = new TypeBinder(cls);
-
-            field.setAccessible(true);
-            field.set(object, binder.bind(value));
-            field.setAccessible(accessible);
+            getFieldAccessor(field).set(object, value);
         } catch (IllegalArgumentException e) {
             //simplely suppressed, because shouldn't occur
         } catch (IllegalAccessException e) {
@@ -301,6 +247,17 @@ public class ObjectAccessor {
         return ret;
     }
 
+    /**
+     * Returns the cached accessor of {@code field}, already accessible, rather
+     * than toggling the accessibility of {@code field} itself.
+     */
+    private FieldAccessor getFieldAccessor(Field field) {
+        Class<?> declaringClass = field.getDeclaringClass();
+        ClassReflector classReflector = (declaringClass == clazz) ? this.classReflector : forClass(declaringClass);
+
+        return classReflector.getFieldAccessor(field.getName());
+    }
+
     private ClassReflector getClassDescriptor(Class<?> inheritedClass) {
         isTrue(inheritedClass.isAssignableFrom(clazz),
                 "{0} must be either the same as, or superclass/superinterface of the class/interface {1}", inheritedClass.getName(), clazz.getName());